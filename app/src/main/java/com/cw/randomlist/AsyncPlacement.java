@@ -0,0 +1,217 @@
+package com.cw.randomlist;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在工作线程中为一批item计算位置。
+ * 尺寸由adapter提前提供，按块调用位置计算引擎，每块计算完成后结果对主线程可见，主线程按帧分批取走。
+ * 计算引擎只在持有引擎锁时使用，取消后工作线程不会再访问引擎。
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class AsyncPlacement implements Runnable {
+
+    /**
+     * 每次调用计算引擎的item个数
+     */
+    private static final int CHUNK = 1024;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RandomLayout-placement");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final PlacementEngine mEngine;
+    private final RandomAdapter mAdapter;
+    private final int[] mPositions;
+    private final int mOrientation;
+    /**
+     * 交叉轴方向上内容区域的长度
+     */
+    private final int mCrossExtent;
+    /**
+     * 主轴方向上的padding
+     */
+    private final int mMainPadding;
+    private final int mColumns;
+    /**
+     * item的最大宽高，从已确定位置的item开始统计
+     */
+    private volatile int mMaxWidth;
+    private volatile int mMaxHeight;
+    /**
+     * 计算结果，和mPositions一一对应
+     */
+    private final int[] mSizes;
+    private final int[] mRects;
+    private final int[] mCells;
+    /**
+     * 已计算出位置的个数
+     */
+    private int mComputedCount;
+    private volatile boolean mCancelled;
+    private volatile boolean mFinished;
+    private final CountDownLatch mLatch = new CountDownLatch(1);
+
+    /**
+     * @param positions   需要计算位置的position
+     * @param crossExtent 交叉轴方向上内容区域的长度
+     * @param mainPadding 主轴方向上的padding
+     * @param columns     主轴方向上的区域个数，已经调用过ensureCapacity
+     */
+    AsyncPlacement(PlacementEngine engine, RandomAdapter adapter, int[] positions, int orientation,
+                   int crossExtent, int mainPadding, int columns, int maxWidth, int maxHeight) {
+        mEngine = engine;
+        mAdapter = adapter;
+        mPositions = positions;
+        mOrientation = orientation;
+        mCrossExtent = crossExtent;
+        mMainPadding = mainPadding;
+        mColumns = columns;
+        mMaxWidth = maxWidth;
+        mMaxHeight = maxHeight;
+        mSizes = new int[positions.length * 2];
+        mRects = new int[positions.length * 4];
+        mCells = new int[positions.length];
+    }
+
+    void start() {
+        EXECUTOR.execute(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            // 先取出所有尺寸，确定最大尺寸后内容区域的长度才能确定
+            int[] size = new int[2];
+            int maxWidth = mMaxWidth;
+            int maxHeight = mMaxHeight;
+            for (int i = 0; i < mPositions.length; i++) {
+                if (mCancelled) {
+                    return;
+                }
+                mAdapter.getItemSize(mPositions[i], size);
+                mSizes[i * 2] = size[0];
+                mSizes[i * 2 + 1] = size[1];
+                maxWidth = Math.max(maxWidth, size[0]);
+                maxHeight = Math.max(maxHeight, size[1]);
+            }
+            mMaxWidth = maxWidth;
+            mMaxHeight = maxHeight;
+            int width, height;
+            if (mOrientation == PlacementEngine.VERTICAL) {
+                width = mCrossExtent;
+                height = RandomLayout.contentExtent(mColumns, maxHeight) - mMainPadding;
+            } else {
+                width = RandomLayout.contentExtent(mColumns, maxWidth) - mMainPadding;
+                height = mCrossExtent;
+            }
+
+            int[] sizes = new int[CHUNK * 2];
+            int[] rects = new int[CHUNK * 4];
+            int[] cells = new int[CHUNK];
+            for (int start = 0; start < mPositions.length; start += CHUNK) {
+                int count = Math.min(CHUNK, mPositions.length - start);
+                System.arraycopy(mSizes, start * 2, sizes, 0, count * 2);
+                int placed;
+                synchronized (mEngine) {
+                    if (mCancelled) {
+                        return;
+                    }
+                    placed = mEngine.place(sizes, count, mOrientation, width, height, true, rects, cells);
+                    // 在引擎锁内计数，cancel返回后主线程读到的个数包括所有已分配区域的item
+                    System.arraycopy(rects, 0, mRects, start * 4, placed * 4);
+                    System.arraycopy(cells, 0, mCells, start, placed);
+                    synchronized (this) {
+                        mComputedCount += placed;
+                    }
+                }
+                if (placed < count) {
+                    // 区域不足，剩下的item交回主线程
+                    return;
+                }
+            }
+        } finally {
+            mFinished = true;
+            mLatch.countDown();
+        }
+    }
+
+    /**
+     * 取消计算，正在计算的块完成并计数后返回，返回后工作线程不会再访问计算引擎，{@link #getComputedCount()}不再变化
+     */
+    void cancel() {
+        mCancelled = true;
+        synchronized (mEngine) {
+            // 等待正在计算的块完成
+        }
+    }
+
+    /**
+     * 等待工作线程计算完成
+     *
+     * @return 是否在超时前完成
+     */
+    boolean await(long timeoutMillis) throws InterruptedException {
+        return mLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 工作线程是否已经结束，结束后{@link #getComputedCount()}不再变化
+     */
+    boolean isFinished() {
+        return mFinished;
+    }
+
+    synchronized int getComputedCount() {
+        return mComputedCount;
+    }
+
+    int getCount() {
+        return mPositions.length;
+    }
+
+    int getCrossExtent() {
+        return mCrossExtent;
+    }
+
+    int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    int getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    int getPosition(int index) {
+        return mPositions[index];
+    }
+
+    int getWidth(int index) {
+        return mSizes[index * 2];
+    }
+
+    int getHeight(int index) {
+        return mSizes[index * 2 + 1];
+    }
+
+    int getCell(int index) {
+        return mCells[index];
+    }
+
+    /**
+     * 取出位置，相对于内容区域左上角
+     */
+    void getRect(int index, int[] outRect) {
+        System.arraycopy(mRects, index * 4, outRect, 0, 4);
+    }
+}
@@ -0,0 +1,398 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * 区域分配器，用位图记录每个区域是否已被占用（一个区域只放一个View）。
+ * 区域下标 = 列 * 行数 + 行，列从最早的第一列开始计算，在头部扩展后头部新增的区域下标为负数，
+ * 已有区域的下标永远不变，所以两端扩展都不需要移动已有的区域。
+ * 位图分段存储，每段4096个区域，段只在其中有区域被占用时才分配，全部释放后回收，
+ * 内存只和占用的范围有关。
+ * 释放的区域记录在空闲栈中，之后的分配直接从栈顶取出，O(1)复用；
+ * 栈为空时向后添加从头部游标往后找空闲区域，向前添加从尾部游标往前找，
+ * 游标之前(之后)的区域都已被占用，所以每次查询均摊O(1)，且不产生任何对象。
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class CellAllocator {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final int SEGMENT_WORDS = 1 << (SEGMENT_SHIFT - WORD_SHIFT);
+
+    /**
+     * 行数
+     */
+    private final int mRows;
+    /**
+     * 列数
+     */
+    private int mColumns;
+    /**
+     * 第一个区域的下标，在头部扩展时减小
+     */
+    private int mStart;
+    /**
+     * 占用位图的段，null表示整段都空闲
+     */
+    private long[][] mSegments = new long[0][];
+    /**
+     * 每段中已占用的区域个数
+     */
+    private int[] mSegmentUsed = new int[0];
+    /**
+     * mSegments[0]对应的段下标
+     */
+    private int mFirstSegment;
+    /**
+     * 已占用的区域个数
+     */
+    private int mUsedCount;
+    /**
+     * 第一个和最后一个已占用的区域，没有占用时无意义
+     */
+    private int mFirstUsed;
+    private int mLastUsed;
+    /**
+     * 向后分配的游标，游标之前的非头部空闲区域都已被占用
+     */
+    private int mEndCursor = Integer.MIN_VALUE;
+    /**
+     * 向前分配的游标，游标之后的非尾部空闲区域都已被占用
+     */
+    private int mStartCursor = Integer.MAX_VALUE;
+    /**
+     * 释放的区域，分配时优先从栈顶复用。可能包含已经被游标查找重新占用的区域，取出时再检查
+     */
+    private int[] mFreeCells = new int[0];
+    private int mFreeCount;
+    /**
+     * 分配时累计查找过的区域个数
+     */
+    private long mScannedCount;
+
+    CellAllocator(int rows) {
+        mRows = rows;
+    }
+
+    int getRows() {
+        return mRows;
+    }
+
+    int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * @return 区域总数
+     */
+    int getCellCount() {
+        return mColumns * mRows;
+    }
+
+    /**
+     * @return 第一个区域的下标，区域在内容中的序号 = 下标 - getStart()
+     */
+    int getStart() {
+        return mStart;
+    }
+
+    int getUsedCount() {
+        return mUsedCount;
+    }
+
+    /**
+     * @return 分配时累计查找过的区域个数
+     */
+    long getScannedCount() {
+        return mScannedCount;
+    }
+
+    /**
+     * @return 头部空闲的区域个数
+     */
+    int getStartFree() {
+        return mUsedCount == 0 ? 0 : mFirstUsed - mStart;
+    }
+
+    /**
+     * @return 尾部空闲的区域个数
+     */
+    int getEndFree() {
+        return mUsedCount == 0 ? 0 : mStart + getCellCount() - 1 - mLastUsed;
+    }
+
+    /**
+     * 区域是否已被占用
+     */
+    boolean isUsed(int cell) {
+        long[] segment = segmentOf(cell);
+        return segment != null && (segment[(cell & SEGMENT_MASK) >> WORD_SHIFT] & (1L << (cell & WORD_MASK))) != 0;
+    }
+
+    /**
+     * 扩展列数，已有区域的下标和占用情况保持不变，耗时只和扩展的列数有关
+     *
+     * @param extend 扩展的列数
+     * @param addEnd 是否在尾部扩展，否则在头部扩展
+     */
+    void extend(int extend, boolean addEnd) {
+        if (extend <= 0) {
+            return;
+        }
+        mColumns += extend;
+        if (!addEnd) {
+            mStart -= extend * mRows;
+        }
+        ensureSegmentTable(mStart >> SEGMENT_SHIFT, (mStart + getCellCount() - 1) >> SEGMENT_SHIFT);
+    }
+
+    /**
+     * 向后分配：从头部空闲区域之后找第一个空闲区域
+     *
+     * @return 区域下标，没有空闲区域时返回Integer.MIN_VALUE
+     */
+    int allocateAtEnd() {
+        int reused = popFreeCell(true);
+        if (reused != Integer.MIN_VALUE) {
+            return reused;
+        }
+        int from = Math.max(mEndCursor, mUsedCount == 0 ? mStart : mFirstUsed);
+        int cell = nextBit(from, false);
+        if (cell == Integer.MIN_VALUE) {
+            return cell;
+        }
+        mScannedCount += cell - Math.max(from, mStart) + 1;
+        markUsed(cell);
+        mEndCursor = cell + 1;
+        return cell;
+    }
+
+    /**
+     * 向前分配：从尾部空闲区域之前找最后一个空闲区域
+     *
+     * @return 区域下标，没有空闲区域时返回Integer.MIN_VALUE
+     */
+    int allocateAtStart() {
+        int reused = popFreeCell(false);
+        if (reused != Integer.MIN_VALUE) {
+            return reused;
+        }
+        int from = mUsedCount == 0 ? mStart + getCellCount() - 1 : Math.min(mStartCursor, mLastUsed);
+        int cell = previousBit(from, false);
+        if (cell == Integer.MIN_VALUE) {
+            return cell;
+        }
+        mScannedCount += Math.min(from, mStart + getCellCount() - 1) - cell + 1;
+        markUsed(cell);
+        mStartCursor = cell - 1;
+        return cell;
+    }
+
+    /**
+     * 释放区域并放入空闲栈，之后的分配会优先复用，整段都空闲时回收这一段
+     *
+     * @param cell 区域下标
+     */
+    void release(int cell) {
+        if (cell < mStart || cell >= mStart + getCellCount() || !isUsed(cell)) {
+            return;
+        }
+        int slot = (cell >> SEGMENT_SHIFT) - mFirstSegment;
+        mSegments[slot][(cell & SEGMENT_MASK) >> WORD_SHIFT] &= ~(1L << (cell & WORD_MASK));
+        if (--mSegmentUsed[slot] == 0) {
+            mSegments[slot] = null;
+        }
+        mUsedCount--;
+        if (mUsedCount > 0) {
+            if (cell == mFirstUsed) {
+                mFirstUsed = nextBit(cell, true);
+            } else if (cell == mLastUsed) {
+                mLastUsed = previousBit(cell, true);
+            }
+        }
+        if (cell < mEndCursor) {
+            mEndCursor = cell;
+        }
+        if (cell > mStartCursor) {
+            mStartCursor = cell;
+        }
+        pushFreeCell(cell);
+    }
+
+    /**
+     * 清空所有区域的占用记录
+     */
+    void clear() {
+        Arrays.fill(mSegments, null);
+        Arrays.fill(mSegmentUsed, 0);
+        mUsedCount = 0;
+        mEndCursor = Integer.MIN_VALUE;
+        mStartCursor = Integer.MAX_VALUE;
+        mFreeCount = 0;
+    }
+
+    /**
+     * 从空闲栈中取出一个可以使用的区域并占用。
+     * 向后添加时不复用头部空闲的区域，向前添加时不复用尾部空闲的区域，保持内容的增长方向
+     *
+     * @return 区域下标，没有时返回Integer.MIN_VALUE
+     */
+    private int popFreeCell(boolean addEnd) {
+        while (mFreeCount > 0) {
+            int cell = mFreeCells[--mFreeCount];
+            if (isUsed(cell) || (mUsedCount > 0 && (addEnd ? cell < mFirstUsed : cell > mLastUsed))) {
+                // 已经被重新占用，或者已经成为头部(尾部)空闲区域，这些区域仍然可以被游标找到
+                continue;
+            }
+            mScannedCount++;
+            markUsed(cell);
+            return cell;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private void pushFreeCell(int cell) {
+        if (mFreeCount == mFreeCells.length) {
+            // 先丢掉已经被重新占用的记录，仍然不够时再扩容
+            int n = 0;
+            for (int i = 0; i < mFreeCount; i++) {
+                if (!isUsed(mFreeCells[i])) {
+                    mFreeCells[n++] = mFreeCells[i];
+                }
+            }
+            mFreeCount = n;
+            if (mFreeCount * 2 >= mFreeCells.length) {
+                mFreeCells = Arrays.copyOf(mFreeCells, Math.max(16, mFreeCells.length * 2));
+            }
+        }
+        mFreeCells[mFreeCount++] = cell;
+    }
+
+    private void markUsed(int cell) {
+        int slot = (cell >> SEGMENT_SHIFT) - mFirstSegment;
+        if (mSegments[slot] == null) {
+            mSegments[slot] = new long[SEGMENT_WORDS];
+        }
+        mSegments[slot][(cell & SEGMENT_MASK) >> WORD_SHIFT] |= 1L << (cell & WORD_MASK);
+        mSegmentUsed[slot]++;
+        if (mUsedCount == 0) {
+            mFirstUsed = cell;
+            mLastUsed = cell;
+        } else {
+            mFirstUsed = Math.min(mFirstUsed, cell);
+            mLastUsed = Math.max(mLastUsed, cell);
+        }
+        mUsedCount++;
+    }
+
+    private long[] segmentOf(int cell) {
+        int slot = (cell >> SEGMENT_SHIFT) - mFirstSegment;
+        return slot >= 0 && slot < mSegments.length ? mSegments[slot] : null;
+    }
+
+    /**
+     * 保证段表能放下[firstSegment, lastSegment]范围内的段，只复制段的引用
+     */
+    private void ensureSegmentTable(int firstSegment, int lastSegment) {
+        if (mSegments.length == 0) {
+            int capacity = Math.max(4, lastSegment - firstSegment + 1);
+            mSegments = new long[capacity][];
+            mSegmentUsed = new int[capacity];
+            mFirstSegment = firstSegment;
+            return;
+        }
+        int first = Math.min(firstSegment, mFirstSegment);
+        int last = Math.max(lastSegment, mFirstSegment + mSegments.length - 1);
+        if (first == mFirstSegment && last == mFirstSegment + mSegments.length - 1) {
+            return;
+        }
+        // 需要扩展的一端按当前长度倍增，保证两端扩展都是均摊O(1)
+        if (first < mFirstSegment) {
+            first = Math.min(first, mFirstSegment - mSegments.length);
+        }
+        if (last > mFirstSegment + mSegments.length - 1) {
+            last = Math.max(last, mFirstSegment + mSegments.length * 2 - 1);
+        }
+        long[][] segments = new long[last - first + 1][];
+        int[] segmentUsed = new int[segments.length];
+        System.arraycopy(mSegments, 0, segments, mFirstSegment - first, mSegments.length);
+        System.arraycopy(mSegmentUsed, 0, segmentUsed, mFirstSegment - first, mSegments.length);
+        mSegments = segments;
+        mSegmentUsed = segmentUsed;
+        mFirstSegment = first;
+    }
+
+    /**
+     * 从from开始往后找第一个占用情况为used的区域，只在区域范围内查找
+     *
+     * @return 区域下标，没有时返回Integer.MIN_VALUE
+     */
+    private int nextBit(int from, boolean used) {
+        int end = mStart + getCellCount();
+        from = Math.max(from, mStart);
+        while (from < end) {
+            long[] segment = segmentOf(from);
+            if (segment == null) {
+                if (!used) {
+                    return from;
+                }
+                // 整段都空闲，跳到下一段
+                from = ((from >> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+                continue;
+            }
+            int wordIdx = (from & SEGMENT_MASK) >> WORD_SHIFT;
+            long word = (used ? segment[wordIdx] : ~segment[wordIdx]) & (-1L << (from & WORD_MASK));
+            int segmentBase = from & ~SEGMENT_MASK;
+            while (true) {
+                if (word != 0) {
+                    int cell = segmentBase + (wordIdx << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                    return cell < end ? cell : Integer.MIN_VALUE;
+                }
+                if (++wordIdx == SEGMENT_WORDS) {
+                    break;
+                }
+                word = used ? segment[wordIdx] : ~segment[wordIdx];
+            }
+            from = segmentBase + (1 << SEGMENT_SHIFT);
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 从from开始往前找第一个占用情况为used的区域，只在区域范围内查找
+     *
+     * @return 区域下标，没有时返回Integer.MIN_VALUE
+     */
+    private int previousBit(int from, boolean used) {
+        from = Math.min(from, mStart + getCellCount() - 1);
+        while (from >= mStart) {
+            long[] segment = segmentOf(from);
+            int segmentBase = from & ~SEGMENT_MASK;
+            if (segment == null) {
+                if (!used) {
+                    return from;
+                }
+                from = segmentBase - 1;
+                continue;
+            }
+            int wordIdx = (from & SEGMENT_MASK) >> WORD_SHIFT;
+            long word = (used ? segment[wordIdx] : ~segment[wordIdx]) & (-1L >>> (WORD_MASK - (from & WORD_MASK)));
+            while (true) {
+                if (word != 0) {
+                    int cell = segmentBase + (wordIdx << WORD_SHIFT) + WORD_MASK - Long.numberOfLeadingZeros(word);
+                    return cell >= mStart ? cell : Integer.MIN_VALUE;
+                }
+                if (--wordIdx < 0) {
+                    break;
+                }
+                word = used ? segment[wordIdx] : ~segment[wordIdx];
+            }
+            from = segmentBase - 1;
+        }
+        return Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,317 @@
+package com.cw.randomlist;
+
+import java.util.Random;
+
+/**
+ * 默认的位置计算引擎：把内容区域按行列分成若干区域，每个item占一个区域，在区域内随机偏移
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class GridPlacementEngine implements PlacementEngine {
+
+    /**
+     * 计算重叠时候的间距
+     */
+    private static final int OVERLAP_GAP = 2;
+    /**
+     * 和已有的item重叠时，在区域内重新随机的最大次数
+     */
+    private static final int MAX_ATTEMPTS = 8;
+    /**
+     * 随机的位置都重叠时，在区域内每个方向上按等间距依次检查的位置个数
+     */
+    private static final int SCAN_STEPS = 4;
+    /**
+     * 区域暂时搁置时在mCellEntries中的值
+     */
+    private static final int DEFERRED = -2;
+
+    /**
+     * 行数
+     */
+    private final int mXRegularity;
+    /**
+     * 区域分配器，记录每个区域的占用情况
+     */
+    private CellAllocator mAllocator;
+    private Random mRdm;
+    /**
+     * 已确定的位置，用于快速判断重叠
+     */
+    private final SpatialHash mHash = new SpatialHash();
+    /**
+     * 区域下标 -> 位置在mHash中的句柄，-1表示没有，{@link #DEFERRED}表示暂时搁置
+     */
+    private final SegmentedIntArray mCellEntries = new SegmentedIntArray(-1);
+    /**
+     * 暂时搁置的区域个数。区域内怎么放都会和周围的item重叠时保持占用，不再分配给之后的item，
+     * 周围有item释放后才放回空闲栈
+     */
+    private int mDeferredCount;
+    /**
+     * 释放item时检查搁置区域的范围，交叉轴、主轴方向上的区域个数，由最大的item和区域的尺寸决定
+     */
+    private int mCrossRadius;
+    private int mMainRadius;
+    /**
+     * 确定过位置的item在交叉轴、主轴方向上的最大尺寸
+     */
+    private int mMaxChildCross;
+    private int mMaxChildMain;
+    /**
+     * 找到的位置，依次为left、top
+     */
+    private final int[] mSlot = new int[2];
+
+    public GridPlacementEngine() {
+        this(4);
+    }
+
+    /**
+     * @param rowCount 交叉轴方向上的区域个数
+     */
+    public GridPlacementEngine(int rowCount) {
+        mXRegularity = rowCount;
+        mAllocator = new CellAllocator(rowCount);
+        mRdm = new Random();
+    }
+
+    @Override
+    public void reset(long seed) {
+        mAllocator = new CellAllocator(mXRegularity);
+        mRdm = new Random(seed);
+        mHash.clear();
+        mCellEntries.clear();
+        mDeferredCount = 0;
+        mMaxChildCross = 0;
+        mMaxChildMain = 0;
+    }
+
+    @Override
+    public int ensureCapacity(int itemCount, boolean addEnd) {
+        int used = mAllocator.getUsedCount();
+        int need = Math.max(0, itemCount - (used - mDeferredCount));// 还没有分配区域的item个数，搁置的区域不算
+        // 向后添加时头部空闲的区域不可用，向前添加时尾部空闲的区域不可用
+        int reserved = addEnd ? mAllocator.getStartFree() : mAllocator.getEndFree();
+        int free = mAllocator.getCellCount() - reserved - used;
+        if (need > free) {
+            // 区域不满时自动扩展，所有空闲区域都被搁置时至少扩展一列，新的一列中没有其他item
+            mAllocator.extend(Math.max(1, (int) Math.ceil((float) (need - free) / mXRegularity)), addEnd);
+        }
+        return mAllocator.getColumns();
+    }
+
+    @Override
+    public int getRowCount() {
+        return mXRegularity;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return mAllocator.getColumns();
+    }
+
+    @Override
+    public int place(int[] sizes, int count, int orientation, int width, int height, boolean addEnd,
+                     int[] outRects, int[] outCells) {
+        int yRegularity = mAllocator.getColumns();
+        if (yRegularity == 0) {
+            return 0;
+        }
+        // 确定主轴和交叉轴的长度
+        int thisW, thisH;
+        if (orientation == VERTICAL) {
+            thisW = width;
+            thisH = height;
+        } else {
+            thisW = height;
+            thisH = width;
+        }
+        // 用自身的高度去除以分配值，可以算出每一个区域的宽和高
+        float rowH, colW;
+        if (orientation == VERTICAL) {
+            colW = thisW / (float) mXRegularity;
+            rowH = thisH / (float) yRegularity;
+        } else {
+            rowH = thisW / (float) mXRegularity;
+            colW = thisH / (float) yRegularity;
+        }
+
+        updateDeferRadius(sizes, count, orientation, thisW / (float) mXRegularity, thisH / (float) yRegularity);
+        // 格子和最大的item一样大，只在最大尺寸成倍变化时才重新分配
+        if (orientation == VERTICAL) {
+            mHash.fitBucketSize(mMaxChildCross, mMaxChildMain);
+        } else {
+            mHash.fitBucketSize(mMaxChildMain, mMaxChildCross);
+        }
+        for (int i = 0; i < count; i++) {
+            int childW = sizes[i * 2];
+            int childH = sizes[i * 2 + 1];
+            // 向后添加时跳过头部空闲的区域，向前添加时跳过尾部空闲的区域。
+            // 在区域内怎么放都会重叠时搁置这个区域并换下一个空闲区域，不保留重叠的位置
+            int cell;
+            while (true) {
+                cell = addEnd ? mAllocator.allocateAtEnd() : mAllocator.allocateAtStart();
+                if (cell == Integer.MIN_VALUE) {
+                    // 没有空闲区域，或者所有空闲区域都会重叠，由调用方扩展区域后继续
+                    return i;
+                }
+                if (findSlot(cell, childW, childH, orientation, width, height, colW, rowH)) {
+                    break;
+                }
+                mCellEntries.set(cell, DEFERRED);
+                mDeferredCount++;
+            }
+            int left = mSlot[0];
+            int top = mSlot[1];
+            mCellEntries.set(cell, mHash.add(encodeCell(cell), left, top, left + childW, top + childH));
+
+            outRects[i * 4] = left;
+            outRects[i * 4 + 1] = top;
+            outRects[i * 4 + 2] = left + childW;
+            outRects[i * 4 + 3] = top + childH;
+            outCells[i] = encodeCell(cell);
+        }
+        return count;
+    }
+
+    /**
+     * 在区域内为item找一个不和已有item重叠的位置：先随机MAX_ATTEMPTS次，都重叠时按等间距依次检查
+     *
+     * @return 是否找到，找到时位置保存在mSlot中
+     */
+    private boolean findSlot(int cell, int childW, int childH, int orientation, int width, int height,
+                             float colW, float rowH) {
+        int arrayIdx = cell - mAllocator.getStart();// 区域在当前内容中的序号
+        int row = arrayIdx % mXRegularity;// 计算出在二维数组中的位置
+        int col = arrayIdx / mXRegularity;
+
+        //实际的排列方向
+        float rowAct, colAct;
+        if (orientation == VERTICAL) {
+            rowAct = row;
+            colAct = col;
+        } else {
+            rowAct = col;
+            colAct = row;
+        }
+
+        int xOffset = (int) colW - childW; // 区域宽度 和 子View的宽度差值，差值可以用来做区域内的位置随机
+        if (xOffset <= 0) {
+            xOffset = 1;
+        }
+        int yOffset = (int) rowH - childH;
+        if (yOffset <= 0) {
+            yOffset = 1;
+        }
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            // 确定左边，等于区域宽度*左边的区域
+            if (fits((int) (colW * rowAct + mRdm.nextInt(xOffset)), (int) (rowH * colAct + mRdm.nextInt(yOffset)),
+                    childW, childH, width, height)) {
+                return true;
+            }
+        }
+        for (int x = 0; x <= SCAN_STEPS; x++) {
+            for (int y = 0; y <= SCAN_STEPS; y++) {
+                if (fits((int) (colW * rowAct + (xOffset - 1) * x / SCAN_STEPS),
+                        (int) (rowH * colAct + (yOffset - 1) * y / SCAN_STEPS), childW, childH, width, height)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 限制在内容区域内后检查是否和已有的item重叠，不重叠时保存到mSlot
+     */
+    private boolean fits(int left, int top, int childW, int childH, int width, int height) {
+        if (left > width - childW) {// 加上子View的宽度后不能超出右边界
+            left = width - childW;
+        }
+        if (top > height - childH) {// 加上子View的高度后不能超出下边界
+            top = height - childH;
+        }
+        if (mHash.intersects(left - OVERLAP_GAP, top - OVERLAP_GAP,
+                left + childW + OVERLAP_GAP, top + childH + OVERLAP_GAP)) {
+            return false;
+        }
+        mSlot[0] = left;
+        mSlot[1] = top;
+        return true;
+    }
+
+    /**
+     * 按目前最大的item计算释放item时需要检查的搁置区域的范围：item从自己的区域起点向后最多延伸最大尺寸，
+     * 能挡住某个区域的item一定在这个范围内
+     *
+     * @param cellCross 区域在交叉轴方向上的长度
+     * @param cellMain  区域在主轴方向上的长度
+     */
+    private void updateDeferRadius(int[] sizes, int count, int orientation, float cellCross, float cellMain) {
+        for (int i = 0; i < count; i++) {
+            mMaxChildCross = Math.max(mMaxChildCross, orientation == VERTICAL ? sizes[i * 2] : sizes[i * 2 + 1]);
+            mMaxChildMain = Math.max(mMaxChildMain, orientation == VERTICAL ? sizes[i * 2 + 1] : sizes[i * 2]);
+        }
+        mCrossRadius = (int) Math.ceil((mMaxChildCross + OVERLAP_GAP) / Math.max(1f, cellCross)) + 1;
+        mMainRadius = (int) Math.ceil((mMaxChildMain + OVERLAP_GAP) / Math.max(1f, cellMain)) + 1;
+    }
+
+    @Override
+    public void release(int cell) {
+        if (cell < 0) {
+            return;
+        }
+        int index = decodeCell(cell);
+        mHash.remove(mCellEntries.get(index));
+        mCellEntries.set(index, -1);
+        mAllocator.release(index);
+        if (mDeferredCount > 0) {
+            releaseDeferredAround(index);
+        }
+    }
+
+    /**
+     * 周围的item释放后，附近搁置的区域可能不再重叠，放回空闲栈
+     */
+    private void releaseDeferredAround(int index) {
+        int start = mAllocator.getStart();
+        int arrayIdx = index - start;
+        int row = arrayIdx % mXRegularity;
+        int col = arrayIdx / mXRegularity;
+        int lastCol = Math.min(mAllocator.getColumns() - 1, col + mMainRadius);
+        int lastRow = Math.min(mXRegularity - 1, row + mCrossRadius);
+        for (int c = Math.max(0, col - mMainRadius); c <= lastCol; c++) {
+            for (int r = Math.max(0, row - mCrossRadius); r <= lastRow; r++) {
+                int neighbour = start + c * mXRegularity + r;
+                if (mCellEntries.get(neighbour) == DEFERRED) {
+                    mCellEntries.set(neighbour, -1);
+                    mAllocator.release(neighbour);
+                    mDeferredCount--;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void offset(int dx, int dy) {
+        mHash.offset(dx, dy);
+    }
+
+    @Override
+    public long getScannedCellCount() {
+        return mAllocator.getScannedCount();
+    }
+
+    /**
+     * 区域下标在头部扩展后可能为负数，输出时交错编码为非负数：0, -1, 1, -2 ... -> 0, 1, 2, 3 ...
+     */
+    private static int encodeCell(int index) {
+        return (index << 1) ^ (index >> 31);
+    }
+
+    private static int decodeCell(int cell) {
+        return (cell >>> 1) ^ -(cell & 1);
+    }
+}
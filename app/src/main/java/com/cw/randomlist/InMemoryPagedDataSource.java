@@ -0,0 +1,49 @@
+package com.cw.randomlist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据都在内存中的分页数据源，可以模拟加载延迟，用于测试和示例
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class InMemoryPagedDataSource<T> implements PagedDataSource<T> {
+
+    private final List<T> mItems;
+    private volatile long mDelayMillis;
+    private final AtomicInteger mLoadCount = new AtomicInteger();
+
+    public InMemoryPagedDataSource(List<T> items) {
+        mItems = new ArrayList<>(items);
+    }
+
+    /**
+     * 设置每次加载的模拟延迟
+     *
+     * @param delayMillis 单位毫秒
+     */
+    public void setDelayMillis(long delayMillis) {
+        mDelayMillis = Math.max(0, delayMillis);
+    }
+
+    /**
+     * @return 已经调用loadPage的次数
+     */
+    public int getLoadCount() {
+        return mLoadCount.get();
+    }
+
+    @Override
+    public List<T> loadPage(int page, int pageSize) throws Exception {
+        mLoadCount.incrementAndGet();
+        if (mDelayMillis > 0) {
+            Thread.sleep(mDelayMillis);
+        }
+        int from = Math.min(page * pageSize, mItems.size());
+        int to = Math.min(from + pageSize, mItems.size());
+        return new ArrayList<>(mItems.subList(from, to));
+    }
+}
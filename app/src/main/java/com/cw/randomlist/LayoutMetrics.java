@@ -0,0 +1,158 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * RandomLayout的性能统计：耗时按2的幂(微秒)分桶记录为直方图，计数只累加，记录时不产生任何对象。
+ * 统计结果按周期交给{@link RandomLayout.MetricsListener}，回调返回后清零
+ *
+ * @author cw
+ * @date 2026/10/17
+ * @see RandomLayout#setMetricsListener(RandomLayout.MetricsListener, long)
+ */
+public class LayoutMetrics {
+
+    /**
+     * onMeasure的耗时
+     */
+    public static final int TIMER_MEASURE = 0;
+    /**
+     * onLayout的耗时
+     */
+    public static final int TIMER_LAYOUT = 1;
+    /**
+     * generateChildren的耗时
+     */
+    public static final int TIMER_GENERATE_CHILDREN = 2;
+    /**
+     * adapter.getView绑定一个item的耗时
+     */
+    public static final int TIMER_BIND = 3;
+    public static final int TIMER_COUNT = 4;
+
+    /**
+     * 从回收集合中取到了View
+     */
+    public static final int COUNTER_RECYCLER_HIT = 0;
+    /**
+     * 回收集合中没有这种类型的View
+     */
+    public static final int COUNTER_RECYCLER_MISS = 1;
+    /**
+     * 挂载到布局中的View个数
+     */
+    public static final int COUNTER_VIEWS_ATTACHED = 2;
+    /**
+     * 确定位置时查找过的区域个数
+     */
+    public static final int COUNTER_CELLS_SCANNED = 3;
+    /**
+     * 确定位置的item个数，和COUNTER_CELLS_SCANNED一起可以算出每个item平均查找的区域个数
+     */
+    public static final int COUNTER_ITEMS_PLACED = 4;
+    /**
+     * computeScroll中推进了惯性滚动或回弹的帧数
+     */
+    public static final int COUNTER_SCROLL_FRAMES = 5;
+    /**
+     * 回收集合中这种类型已满，被丢弃的View个数
+     */
+    public static final int COUNTER_RECYCLER_EVICTION = 6;
+    public static final int COUNTER_COUNT = 7;
+
+    /**
+     * 直方图的桶数，第i个桶记录耗时在[2^(i-1), 2^i)微秒的次数，第0个桶记录不到1微秒的次数
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    private final long[] mBuckets = new long[TIMER_COUNT * BUCKET_COUNT];
+    private final long[] mTotalNanos = new long[TIMER_COUNT];
+    private final long[] mMaxNanos = new long[TIMER_COUNT];
+    private final long[] mCounters = new long[COUNTER_COUNT];
+
+    /**
+     * 记录一次耗时
+     */
+    void record(int timer, long nanos) {
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        mBuckets[timer * BUCKET_COUNT + bucket]++;
+        mTotalNanos[timer] += nanos;
+        if (nanos > mMaxNanos[timer]) {
+            mMaxNanos[timer] = nanos;
+        }
+    }
+
+    void add(int counter, long value) {
+        mCounters[counter] += value;
+    }
+
+    /**
+     * 全部清零
+     */
+    void reset() {
+        Arrays.fill(mBuckets, 0);
+        Arrays.fill(mTotalNanos, 0);
+        Arrays.fill(mMaxNanos, 0);
+        Arrays.fill(mCounters, 0);
+    }
+
+    /**
+     * @return 记录的次数
+     */
+    public long getCount(int timer) {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mBuckets[timer * BUCKET_COUNT + i];
+        }
+        return count;
+    }
+
+    public long getTotalNanos(int timer) {
+        return mTotalNanos[timer];
+    }
+
+    public long getMaxNanos(int timer) {
+        return mMaxNanos[timer];
+    }
+
+    /**
+     * @return 第bucket个桶记录的次数
+     */
+    public long getBucketCount(int timer, int bucket) {
+        return mBuckets[timer * BUCKET_COUNT + bucket];
+    }
+
+    /**
+     * @return 第bucket个桶的耗时上限(不包含)，单位纳秒
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        return (1L << bucket) * 1000;
+    }
+
+    /**
+     * 按直方图估算百分位耗时，返回所在桶的上限，不超过记录过的最大耗时
+     *
+     * @param percentile 0~100
+     * @return 单位纳秒，没有记录时返回0
+     */
+    public long getPercentileNanos(int timer, float percentile) {
+        long count = getCount(timer);
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * Math.max(0f, Math.min(100f, percentile)) / 100f);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[timer * BUCKET_COUNT + i];
+            if (seen >= target && seen > 0) {
+                return Math.min(getBucketUpperBoundNanos(i), mMaxNanos[timer]);
+            }
+        }
+        return mMaxNanos[timer];
+    }
+
+    public long getCounter(int counter) {
+        return mCounters[counter];
+    }
+}
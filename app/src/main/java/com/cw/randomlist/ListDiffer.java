@@ -0,0 +1,521 @@
+package com.cw.randomlist;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在工作线程中比较新旧两个列表，得出最少的插入、移除、移动和内容变化，再在主线程中通知adapter。
+ * 没有变化的item保持原来的区域和位置，主线程只做增量更新。
+ * adapter的getCount、getView使用{@link #getCurrentList()}，数据更新时调用{@link #submitList(List)}
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class ListDiffer<T> {
+
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RandomLayout-diff");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final RandomAdapter mAdapter;
+    private final ItemCallback<T> mCallback;
+    private Executor mExecutor = DEFAULT_EXECUTOR;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private List<T> mList = Collections.emptyList();
+    /**
+     * 每次提交加1，只应用最后一次提交的比较结果
+     */
+    private int mGeneration;
+
+    public ListDiffer(RandomAdapter adapter, ItemCallback<T> callback) {
+        mAdapter = adapter;
+        mCallback = callback;
+    }
+
+    /**
+     * 设置比较列表的线程池，默认为单个后台线程
+     */
+    public void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * @return 当前已经通知给adapter的列表，不能修改
+     */
+    public List<T> getCurrentList() {
+        return mList;
+    }
+
+    public void submitList(List<T> newList) {
+        submitList(newList, null);
+    }
+
+    /**
+     * 提交新的列表，在工作线程中比较后在主线程中通知adapter。
+     * 之前提交的还没有完成的比较结果会被丢弃
+     *
+     * @param commitCallback 新列表通知给adapter之后的回调，可以为null
+     */
+    public void submitList(List<T> newList, final Runnable commitCallback) {
+        final int generation = ++mGeneration;
+        final List<T> oldList = mList;
+        final List<T> list = newList == null ? Collections.<T>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(newList));
+        if (oldList.isEmpty() || list.isEmpty()) {
+            // 一边为空时不需要比较
+            DiffResult result = oldList.isEmpty() ? DiffResult.inserted(list.size()) : DiffResult.removed(oldList.size());
+            commit(list, result, commitCallback);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffResult result = calculateDiff(oldList, list, mCallback);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            commit(list, result, commitCallback);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void commit(List<T> list, DiffResult result, Runnable commitCallback) {
+        mList = list;
+        result.dispatchTo(mAdapter);
+        if (commitCallback != null) {
+            commitCallback.run();
+        }
+    }
+
+    /**
+     * 比较两个列表，可以在任意线程中调用
+     */
+    public static <T> DiffResult calculateDiff(List<T> oldList, List<T> newList, ItemCallback<T> callback) {
+        return new Calculator<>(oldList, newList, callback).calculate();
+    }
+
+    /**
+     * 判断item是否相同的回调，在工作线程中调用
+     */
+    public interface ItemCallback<T> {
+        /**
+         * item的id，id相同的是同一个item。旧列表中被移除的item按id找到新列表中对应的item作为移动
+         */
+        long getItemId(T item);
+
+        /**
+         * 同一个item的内容是否相同，不同时会重新绑定
+         */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * 比较结果，按顺序依次为移除、移动、插入、内容变化，每一步的position都是执行到这一步时的position
+     */
+    public static class DiffResult {
+
+        static final int OP_REMOVE = 0;
+        static final int OP_MOVE = 1;
+        static final int OP_INSERT = 2;
+        static final int OP_CHANGE = 3;
+
+        /**
+         * 每3个int依次为类型、参数a、参数b：移除、插入和变化时为起点和个数，移动时为起点和终点
+         */
+        private int[] mOps = new int[24];
+        private int mOpCount;
+
+        static DiffResult inserted(int count) {
+            DiffResult result = new DiffResult();
+            if (count > 0) {
+                result.add(OP_INSERT, 0, count);
+            }
+            return result;
+        }
+
+        static DiffResult removed(int count) {
+            DiffResult result = new DiffResult();
+            if (count > 0) {
+                result.add(OP_REMOVE, 0, count);
+            }
+            return result;
+        }
+
+        /**
+         * 添加一步操作，和上一步是连续的同类范围时合并
+         */
+        void add(int op, int a, int b) {
+            if (mOpCount > 0 && op != OP_MOVE) {
+                int last = (mOpCount - 1) * 3;
+                if (mOps[last] == op) {
+                    if ((op == OP_INSERT || op == OP_CHANGE) && mOps[last + 1] + mOps[last + 2] == a) {
+                        mOps[last + 2] += b;
+                        return;
+                    }
+                    if (op == OP_REMOVE && a + b == mOps[last + 1]) {
+                        // 移除从后往前进行
+                        mOps[last + 1] = a;
+                        mOps[last + 2] += b;
+                        return;
+                    }
+                }
+            }
+            if (mOpCount * 3 == mOps.length) {
+                mOps = Arrays.copyOf(mOps, mOps.length * 2);
+            }
+            mOps[mOpCount * 3] = op;
+            mOps[mOpCount * 3 + 1] = a;
+            mOps[mOpCount * 3 + 2] = b;
+            mOpCount++;
+        }
+
+        /**
+         * @return 通知adapter的次数
+         */
+        public int getUpdateCount() {
+            return mOpCount;
+        }
+
+        /**
+         * 按顺序通知adapter，需要在主线程中、adapter已经使用新列表后调用
+         */
+        public void dispatchTo(RandomAdapter adapter) {
+            for (int i = 0; i < mOpCount; i++) {
+                int a = mOps[i * 3 + 1];
+                int b = mOps[i * 3 + 2];
+                switch (mOps[i * 3]) {
+                    case OP_REMOVE:
+                        adapter.notifyItemRangeRemoved(a, b);
+                        break;
+                    case OP_MOVE:
+                        adapter.notifyItemMoved(a, b);
+                        break;
+                    case OP_INSERT:
+                        adapter.notifyItemRangeInserted(a, b);
+                        break;
+                    default:
+                        adapter.notifyItemRangeChanged(a, b);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Myers差分算法(线性空间的中间蛇形版本)求出最长的不移动的相同序列，
+     * 剩下的item中相同的作为移动，其余为移除和插入
+     */
+    private static class Calculator<T> {
+
+        private final List<T> mOld;
+        private final List<T> mNew;
+        private final ItemCallback<T> mCallback;
+        private final long[] mOldIds;
+        private final long[] mNewIds;
+        /**
+         * 旧item对应的新位置，-1表示被移除
+         */
+        private final int[] mOldToNew;
+        /**
+         * 新item对应的旧位置，-1表示新插入
+         */
+        private final int[] mNewToOld;
+        /**
+         * 通过移动匹配上的旧item
+         */
+        private final boolean[] mMoved;
+        private int[] mForward = new int[0];
+        private int[] mBackward = new int[0];
+
+        Calculator(List<T> oldList, List<T> newList, ItemCallback<T> callback) {
+            mOld = oldList;
+            mNew = newList;
+            mCallback = callback;
+            mOldToNew = new int[oldList.size()];
+            mNewToOld = new int[newList.size()];
+            mMoved = new boolean[oldList.size()];
+            mOldIds = new long[oldList.size()];
+            mNewIds = new long[newList.size()];
+            for (int i = 0; i < mOldIds.length; i++) {
+                mOldIds[i] = callback.getItemId(oldList.get(i));
+            }
+            for (int j = 0; j < mNewIds.length; j++) {
+                mNewIds[j] = callback.getItemId(newList.get(j));
+            }
+            Arrays.fill(mOldToNew, -1);
+            Arrays.fill(mNewToOld, -1);
+        }
+
+        DiffResult calculate() {
+            matchRange(0, 0, mOld.size(), mNew.size());
+            findMoves();
+            DiffResult result = new DiffResult();
+            // 1.从后往前移除没有匹配的旧item
+            for (int i = mOld.size() - 1; i >= 0; i--) {
+                if (mOldToNew[i] < 0) {
+                    result.add(DiffResult.OP_REMOVE, i, 1);
+                }
+            }
+            // 2.剩下的都是有匹配的item，把移动的item按新顺序逐个放到新顺序中前一个item之后
+            dispatchMoves(result);
+            // 3.按新位置从前往后插入
+            for (int j = 0; j < mNew.size(); j++) {
+                if (mNewToOld[j] < 0) {
+                    result.add(DiffResult.OP_INSERT, j, 1);
+                }
+            }
+            // 4.此时position已经和新列表一致，通知内容变化
+            for (int j = 0; j < mNew.size(); j++) {
+                int oldIdx = mNewToOld[j];
+                if (oldIdx >= 0 && !mCallback.areContentsTheSame(mOld.get(oldIdx), mNew.get(j))) {
+                    result.add(DiffResult.OP_CHANGE, j, 1);
+                }
+            }
+            return result;
+        }
+
+        private boolean same(int oldIdx, int newIdx) {
+            return mOldIds[oldIdx] == mNewIds[newIdx];
+        }
+
+        private void match(int oldIdx, int newIdx) {
+            mOldToNew[oldIdx] = newIdx;
+            mNewToOld[newIdx] = oldIdx;
+        }
+
+        /**
+         * 求出旧列表[left, right)和新列表[top, bottom)之间的最长公共子序列
+         */
+        private void matchRange(int left, int top, int right, int bottom) {
+            // 先去掉相同的头尾
+            while (left < right && top < bottom && same(left, top)) {
+                match(left++, top++);
+            }
+            while (left < right && top < bottom && same(right - 1, bottom - 1)) {
+                match(--right, --bottom);
+            }
+            if (left == right || top == bottom) {
+                return;
+            }
+            int[] snake = middleSnake(left, top, right, bottom);
+            // snake依次为起点x、y，终点x、y，起点到终点之间是对角线加上最多一步插入或移除
+            int x = snake[0];
+            int y = snake[1];
+            matchRange(left, top, x, y);
+            int endX = snake[2];
+            int endY = snake[3];
+            while (x < endX && y < endY && same(x, y)) {
+                match(x++, y++);
+            }
+            if (endX - x > endY - y) {
+                x++;
+            } else if (endX - x < endY - y) {
+                y++;
+            }
+            while (x < endX && y < endY) {
+                match(x++, y++);
+            }
+            matchRange(endX, endY, right, bottom);
+        }
+
+        /**
+         * 同时从两端搜索，找到最短编辑路径中间的一段蛇形(一步编辑加上之后的对角线)
+         */
+        private int[] middleSnake(int left, int top, int right, int bottom) {
+            int width = right - left;
+            int height = bottom - top;
+            int delta = width - height;
+            int max = (width + height + 1) / 2;
+            int offset = max + 1;
+            int size = max * 2 + 3;
+            if (mForward.length < size) {
+                mForward = new int[size];
+                mBackward = new int[size];
+            }
+            int[] vf = mForward;
+            int[] vb = mBackward;
+            vf[offset + 1] = left;
+            vb[offset + 1] = bottom;
+            for (int d = 0; d <= max; d++) {
+                for (int k = d; k >= -d; k -= 2) {
+                    int c = k - delta;
+                    int x, px;
+                    if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1])) {
+                        px = x = vf[offset + k + 1];
+                    } else {
+                        px = vf[offset + k - 1];
+                        x = px + 1;
+                    }
+                    int y = top + (x - left) - k;
+                    int py = (d == 0 || x != px) ? y : y - 1;
+                    while (x < right && y < bottom && same(x, y)) {
+                        x++;
+                        y++;
+                    }
+                    vf[offset + k] = x;
+                    if ((delta & 1) != 0 && c >= -(d - 1) && c <= d - 1 && y >= vb[offset + c]) {
+                        return new int[]{px, py, x, y};
+                    }
+                }
+                for (int c = d; c >= -d; c -= 2) {
+                    int k = c + delta;
+                    int y, py;
+                    if (c == -d || (c != d && vb[offset + c - 1] > vb[offset + c + 1])) {
+                        py = y = vb[offset + c + 1];
+                    } else {
+                        py = vb[offset + c - 1];
+                        y = py - 1;
+                    }
+                    int x = left + (y - top) + k;
+                    int px = (d == 0 || y != py) ? x : x + 1;
+                    while (x > left && y > top && same(x - 1, y - 1)) {
+                        x--;
+                        y--;
+                    }
+                    vb[offset + c] = y;
+                    if ((delta & 1) == 0 && k >= -d && k <= d && x <= vf[offset + k]) {
+                        return new int[]{x, y, px, py};
+                    }
+                }
+            }
+            throw new IllegalStateException("middle snake not found");
+        }
+
+        /**
+         * 没有匹配的旧item和新item中id相同的作为移动。被移除的旧item按id建立索引，
+         * id重复时按旧位置从前往后依次匹配，代价为O(移除个数 + 插入个数)
+         */
+        private void findMoves() {
+            Map<Long, Integer> firstRemoved = new HashMap<>();
+            int[] nextRemoved = new int[mOld.size()];
+            for (int i = mOld.size() - 1; i >= 0; i--) {
+                if (mOldToNew[i] < 0) {
+                    Integer next = firstRemoved.put(mOldIds[i], i);
+                    nextRemoved[i] = next != null ? next : -1;
+                }
+            }
+            if (firstRemoved.isEmpty()) {
+                return;
+            }
+            for (int j = 0; j < mNew.size(); j++) {
+                if (mNewToOld[j] >= 0) {
+                    continue;
+                }
+                Integer i = firstRemoved.get(mNewIds[j]);
+                if (i == null) {
+                    continue;
+                }
+                if (nextRemoved[i] >= 0) {
+                    firstRemoved.put(mNewIds[j], nextRemoved[i]);
+                } else {
+                    firstRemoved.remove(mNewIds[j]);
+                }
+                match(i, j);
+                mMoved[i] = true;
+            }
+        }
+
+        /**
+         * 按新顺序逐个移动item，每个移动的item放到新顺序中前一个留下的item之后。
+         * 新顺序中跟在同一个不移动的item(或者开头)之后的移动item最终连续排列，
+         * 所以最终顺序中每个item的槽位可以预先确定：不移动的item的槽位后面紧跟着它之后的移动item的槽位，
+         * 移动的item原来的位置也有一个槽位。用树状数组记录哪些槽位有item，position就是前面有item的槽位个数，
+         * 代价为O(N·log(N))
+         */
+        private void dispatchMoves(DiffResult result) {
+            // 留下的旧item按旧顺序的序号
+            int[] survivor = new int[mOld.size()];
+            int survivorCount = 0;
+            for (int i = 0; i < mOld.size(); i++) {
+                if (mOldToNew[i] >= 0) {
+                    survivor[i] = survivorCount++;
+                }
+            }
+            // 跟在每个不移动的item之后的移动item个数，下标0为开头
+            int[] runLength = new int[survivorCount + 1];
+            int anchor = -1;
+            for (int j = 0; j < mNew.size(); j++) {
+                int oldIdx = mNewToOld[j];
+                if (oldIdx < 0) {
+                    continue;
+                }
+                if (mMoved[oldIdx]) {
+                    runLength[anchor + 1]++;
+                } else {
+                    anchor = survivor[oldIdx];
+                }
+            }
+            // 槽位依次为开头的移动item，然后每个留下的旧item的原位置加上跟在它之后的移动item
+            int[] baseSlot = new int[survivorCount];
+            int[] nextRunSlot = new int[survivorCount + 1];
+            int slot = 0;
+            nextRunSlot[0] = slot;
+            slot += runLength[0];
+            for (int s = 0; s < survivorCount; s++) {
+                baseSlot[s] = slot++;
+                nextRunSlot[s + 1] = slot;
+                slot += runLength[s + 1];
+            }
+            int[] tree = new int[slot + 1];
+            for (int s = 0; s < survivorCount; s++) {
+                fenwickAdd(tree, baseSlot[s], 1);
+            }
+            anchor = -1;
+            for (int j = 0; j < mNew.size(); j++) {
+                int oldIdx = mNewToOld[j];
+                if (oldIdx < 0) {
+                    continue;
+                }
+                if (!mMoved[oldIdx]) {
+                    anchor = survivor[oldIdx];
+                    continue;
+                }
+                int from = fenwickCount(tree, baseSlot[survivor[oldIdx]]);
+                fenwickAdd(tree, baseSlot[survivor[oldIdx]], -1);
+                int target = nextRunSlot[anchor + 1]++;
+                int to = fenwickCount(tree, target);
+                fenwickAdd(tree, target, 1);
+                if (from != to) {
+                    result.add(DiffResult.OP_MOVE, from, to);
+                }
+            }
+        }
+
+        private static void fenwickAdd(int[] tree, int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * @return [0, index)中有item的槽位个数
+         */
+        private static int fenwickCount(int[] tree, int index) {
+            int count = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+    }
+}
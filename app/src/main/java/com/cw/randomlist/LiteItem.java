@@ -0,0 +1,45 @@
+package com.cw.randomlist;
+
+import android.graphics.Color;
+
+/**
+ * 轻量模式下item的绘制数据，由RandomLayout直接画成带文字的圆形，不创建View。
+ * RandomLayout会复用同一个对象，adapter只需要填充字段
+ *
+ * @author cw
+ * @date 2026/10/17
+ * @see RandomAdapter#isLiteMode()
+ */
+public class LiteItem {
+
+    /**
+     * 宽高，单位px
+     */
+    public int width;
+    public int height;
+    /**
+     * 填充颜色
+     */
+    public int color;
+    /**
+     * 文字，为null时不画文字
+     */
+    public String label;
+    public int textColor;
+    /**
+     * 文字大小，单位px
+     */
+    public float textSize;
+
+    /**
+     * 恢复默认值，每次交给adapter填充之前调用
+     */
+    void reset() {
+        width = 0;
+        height = 0;
+        color = Color.GRAY;
+        label = null;
+        textColor = Color.BLACK;
+        textSize = 0;
+    }
+}
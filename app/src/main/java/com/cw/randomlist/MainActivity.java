@@ -26,6 +26,8 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.layout_main);
 
         mRandomList = findViewById(R.id.randomList);
+        // 300px的item比一个区域大，按尺寸占用多个区域
+        mRandomList.setPlacementEngine(new SpanPlacementEngine());
         mAdapter = new RandomAdapter() {
             @Override
             public int getCount() {
@@ -34,7 +36,10 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public View getView(Context context, int position, View convertView) {
-                View view = View.inflate(getApplicationContext(), R.layout.layout_item, null);
+                View view = convertView;
+                if (view == null) {
+                    view = View.inflate(getApplicationContext(), R.layout.layout_item, null);
+                }
                 boolean b = mRdm.nextInt(100) % 3 > 0;
                 int i = b ? 200 : 300;
                 RandomLayout.LayoutParams layoutParams = new RandomLayout.LayoutParams(i, i);
@@ -61,8 +66,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void add(View view) {
+        int start = count;
         count += 10;
-        mAdapter.notifyDataSetChanged();
+        mAdapter.notifyItemRangeInserted(start, 10);
     }
 
     public void addEnd(View view) {
@@ -0,0 +1,71 @@
+package com.cw.randomlist;
+
+/**
+ * 测量结果缓存，以LayoutParams的宽高和父布局的MeasureSpec作为key。
+ * 只适用于LayoutParams宽高都是确定值的子View，这时测量结果和内容无关。
+ * item的尺寸种类通常很少，所以用定长数组顺序查找，满了以后循环覆盖。
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class MeasureCache {
+
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * 每4个int依次为LayoutParams的宽、高，宽、高的MeasureSpec
+     */
+    private final int[] mKeys = new int[MAX_ENTRIES * 4];
+    /**
+     * 每2个int依次为测量后的宽、高
+     */
+    private final int[] mValues = new int[MAX_ENTRIES * 2];
+    private int mCount;
+    /**
+     * 满了以后下一个被覆盖的位置
+     */
+    private int mNext;
+
+    /**
+     * @return 缓存下标，没有缓存时返回-1
+     */
+    int indexOf(int width, int height, int widthMeasureSpec, int heightMeasureSpec) {
+        for (int i = 0; i < mCount; i++) {
+            int base = i * 4;
+            if (mKeys[base] == width && mKeys[base + 1] == height
+                    && mKeys[base + 2] == widthMeasureSpec && mKeys[base + 3] == heightMeasureSpec) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getMeasuredWidth(int index) {
+        return mValues[index * 2];
+    }
+
+    int getMeasuredHeight(int index) {
+        return mValues[index * 2 + 1];
+    }
+
+    void put(int width, int height, int widthMeasureSpec, int heightMeasureSpec, int measuredWidth, int measuredHeight) {
+        int index;
+        if (mCount < MAX_ENTRIES) {
+            index = mCount++;
+        } else {
+            index = mNext;
+            mNext = (mNext + 1) % MAX_ENTRIES;
+        }
+        mKeys[index * 4] = width;
+        mKeys[index * 4 + 1] = height;
+        mKeys[index * 4 + 2] = widthMeasureSpec;
+        mKeys[index * 4 + 3] = heightMeasureSpec;
+        mValues[index * 2] = measuredWidth;
+        mValues[index * 2 + 1] = measuredHeight;
+    }
+
+    void clear() {
+        mCount = 0;
+        mNext = 0;
+    }
+}
@@ -0,0 +1,329 @@
+package com.cw.randomlist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 分页加载的adapter，用于无限增长的随机列表。
+ * 可见item接近最新的一端时(向后添加时在结尾，向前添加时在开头)先插入一页占位item占住区域，
+ * 同时在工作线程中加载这一页，加载完成后只重新绑定这一页，位置保持不变。
+ * 内存中最多保留指定页数的数据，离可见区域最远的页被丢弃后恢复为占位，再次接近时重新加载
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public abstract class PagedAdapter<T> extends RandomAdapter {
+
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RandomLayout-paging");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final PagedDataSource<T> mSource;
+    private final int mPageSize;
+    /**
+     * 内存中最多保留的页数
+     */
+    private int mMaxPages = 8;
+    /**
+     * 可见item离未加载的数据小于这个距离时开始加载，单位为item个数
+     */
+    private int mPrefetchDistance;
+    private Executor mExecutor = DEFAULT_EXECUTOR;
+    /**
+     * 把加载结果切回主线程，默认post到主线程的Handler
+     */
+    private Executor mMainThreadExecutor = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    };
+    /**
+     * item总数，包括占位item
+     */
+    private int mCount;
+    /**
+     * 已加载的页，页码 -> 数据
+     */
+    private final SparseArray<List<T>> mPages = new SparseArray<>();
+    /**
+     * 正在加载的页
+     */
+    private final SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+    /**
+     * 数据源是否已经没有更多数据
+     */
+    private boolean mEndReached;
+    /**
+     * 重新加载后之前发出的加载结果直接丢弃
+     */
+    private int mGeneration;
+    /**
+     * 最近一次的可见范围，没有时为-1
+     */
+    private int mVisibleMin = -1;
+    private int mVisibleMax = -1;
+
+    /**
+     * @param pageSize 每页的item个数
+     */
+    public PagedAdapter(PagedDataSource<T> source, int pageSize) {
+        mSource = source;
+        mPageSize = Math.max(1, pageSize);
+        mPrefetchDistance = mPageSize;
+    }
+
+    /**
+     * 绑定item
+     *
+     * @param item 数据，为null时表示这一页还没有加载，需要返回占位View
+     */
+    public abstract View getView(Context context, int position, T item, View convertView);
+
+    /**
+     * 设置内存中最多保留的页数，至少保留可见范围加上前后加载距离内的页
+     */
+    public void setMaxLoadedPages(int maxPages) {
+        mMaxPages = Math.max(1, maxPages);
+        trimPages();
+    }
+
+    public int getMaxLoadedPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * 设置开始加载的距离
+     *
+     * @param distance 可见item离未加载的数据的item个数，默认为一页
+     */
+    public void setPrefetchDistance(int distance) {
+        mPrefetchDistance = Math.max(0, distance);
+    }
+
+    /**
+     * 设置加载数据的线程池，默认为单个后台线程
+     */
+    public void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * 设置在主线程中应用加载结果的Executor，默认post到主线程的Handler。
+     * 提交的任务必须在主线程中按提交顺序执行，测试时可以替换为直接执行或手动执行
+     */
+    public void setMainThreadExecutor(Executor executor) {
+        mMainThreadExecutor = executor;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * @return position对应的数据，还没有加载时返回null
+     */
+    public T getItem(int position) {
+        List<T> page = mPages.get(position / mPageSize);
+        int index = position % mPageSize;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * position是否是还没有加载的占位item
+     */
+    public boolean isPlaceholder(int position) {
+        return getItem(position) == null;
+    }
+
+    /**
+     * 数据源是否已经没有更多数据
+     */
+    public boolean isEndReached() {
+        return mEndReached;
+    }
+
+    /**
+     * 丢弃所有数据和正在进行的加载，从第一页重新开始
+     */
+    public void reload() {
+        mGeneration++;
+        mPages.clear();
+        mLoadingPages.clear();
+        mEndReached = false;
+        mVisibleMin = -1;
+        mVisibleMax = -1;
+        if (mCount > 0) {
+            int count = mCount;
+            mCount = 0;
+            notifyItemRangeRemoved(0, count);
+        }
+        appendPage();
+    }
+
+    @Override
+    public final int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public final View getView(Context context, int position, View convertView) {
+        return getView(context, position, getItem(position), convertView);
+    }
+
+    @Override
+    public void setRandomLayout(RandomLayout randomLayout) {
+        super.setRandomLayout(randomLayout);
+        if (mCount == 0 && !mEndReached) {
+            // 第一页也先用占位item占住区域
+            appendPage();
+        }
+    }
+
+    /**
+     * 可见范围变化时，接近最新的一端就追加一页，可见范围附近没有加载的页重新加载
+     */
+    @Override
+    public void onVisibleRangeChanged(int minPosition, int maxPosition) {
+        mVisibleMin = minPosition;
+        mVisibleMax = maxPosition;
+        if (minPosition < 0 || mCount == 0) {
+            return;
+        }
+        int lastPage = (mCount - 1) / mPageSize;
+        if (!mEndReached && maxPosition + mPrefetchDistance >= mCount && mPages.get(lastPage) != null) {
+            appendPage();
+        }
+        int fromPage = Math.max(0, minPosition - mPrefetchDistance) / mPageSize;
+        int toPage = Math.min(mCount - 1, maxPosition + mPrefetchDistance) / mPageSize;
+        for (int page = fromPage; page <= toPage; page++) {
+            loadPage(page);
+        }
+    }
+
+    /**
+     * 一页加载失败，这一页保持占位，下次可见范围接近时重新加载
+     */
+    protected void onPageLoadFailed(int page, Exception error) {
+    }
+
+    /**
+     * 在最后插入一页占位item并加载这一页
+     */
+    private void appendPage() {
+        int page = mCount / mPageSize;
+        int start = mCount;
+        mCount += mPageSize;
+        notifyItemRangeInserted(start, mPageSize);
+        loadPage(page);
+    }
+
+    private void loadPage(final int page) {
+        if (mPages.get(page) != null || mLoadingPages.get(page)) {
+            return;
+        }
+        mLoadingPages.put(page, true);
+        final int generation = mGeneration;
+        final Executor mainThread = mMainThreadExecutor;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<T> items = null;
+                Exception error = null;
+                try {
+                    items = mSource.loadPage(page, mPageSize);
+                } catch (Exception e) {
+                    error = e;
+                }
+                final List<T> result = items;
+                final Exception failure = error;
+                mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(generation, page, result, failure);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在主线程中应用加载结果：最后一页不满时移除多余的占位item，其余只重新绑定这一页
+     */
+    private void onPageLoaded(int generation, int page, List<T> items, Exception error) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mLoadingPages.delete(page);
+        if (error != null || items == null) {
+            onPageLoadFailed(page, error);
+            return;
+        }
+        int start = page * mPageSize;
+        if (items.size() > mPageSize) {
+            items = items.subList(0, mPageSize);
+        }
+        if (start + mPageSize >= mCount && items.size() < mPageSize) {
+            // 最后一页不满，数据源已经没有更多数据
+            mEndReached = true;
+            int removed = mCount - start - items.size();
+            mCount -= removed;
+            notifyItemRangeRemoved(start + items.size(), removed);
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        mPages.put(page, items);
+        notifyItemRangeChanged(start, items.size());
+        trimPages();
+        // 可见范围没有变化时也要检查是否需要继续加载
+        if (mVisibleMin >= 0) {
+            onVisibleRangeChanged(mVisibleMin, Math.min(mVisibleMax, mCount - 1));
+        }
+    }
+
+    /**
+     * 超出最多保留的页数时，丢弃离可见范围最远的页，已挂载的item重新绑定为占位。
+     * 可见范围加上前后加载距离内的页不丢弃，否则丢弃后马上又会被重新加载
+     */
+    private void trimPages() {
+        int center = mVisibleMin >= 0 ? (mVisibleMin + mVisibleMax) / 2 / mPageSize : 0;
+        int firstVisiblePage = mVisibleMin >= 0 ? Math.max(0, mVisibleMin - mPrefetchDistance) / mPageSize : -1;
+        int lastVisiblePage = mVisibleMin >= 0 ? (mVisibleMax + mPrefetchDistance) / mPageSize : -1;
+        while (mPages.size() > mMaxPages) {
+            int farthest = -1;
+            for (int i = 0; i < mPages.size(); i++) {
+                int page = mPages.keyAt(i);
+                if (page >= firstVisiblePage && page <= lastVisiblePage) {
+                    continue;
+                }
+                if (farthest < 0 || Math.abs(page - center) > Math.abs(farthest - center)) {
+                    farthest = page;
+                }
+            }
+            if (farthest < 0) {
+                return;
+            }
+            int size = mPages.get(farthest).size();
+            mPages.remove(farthest);
+            notifyItemRangeChanged(farthest * mPageSize, size);
+        }
+    }
+}
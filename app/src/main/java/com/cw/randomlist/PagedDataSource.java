@@ -0,0 +1,22 @@
+package com.cw.randomlist;
+
+import java.util.List;
+
+/**
+ * 分页数据源，供{@link PagedAdapter}在工作线程中按页加载数据
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public interface PagedDataSource<T> {
+
+    /**
+     * 加载一页数据，在工作线程中调用
+     *
+     * @param page     页码，从0开始
+     * @param pageSize 每页的item个数
+     * @return 这一页的数据，少于pageSize时表示已经没有更多数据
+     * @throws Exception 加载失败，这一页保持占位，下次接近时重新加载
+     */
+    List<T> loadPage(int page, int pageSize) throws Exception;
+}
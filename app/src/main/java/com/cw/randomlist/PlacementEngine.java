@@ -0,0 +1,72 @@
+package com.cw.randomlist;
+
+/**
+ * 位置计算引擎，只依赖纯Java，不依赖View，可以直接在JVM上测试和benchmark。
+ * 输入item的宽高、内容区域的宽高、排列方向，输出每个item的位置和占用的区域。
+ * 同一个seed、同样的输入顺序得到完全相同的排列。
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public interface PlacementEngine {
+
+    int HORIZONTAL = 0;
+    int VERTICAL = 1;
+
+    /**
+     * 清空所有位置记录，并用seed重新初始化随机数
+     */
+    void reset(long seed);
+
+    /**
+     * 保证有足够的区域放下itemCount个item（包括已经确定位置的item）
+     *
+     * @param itemCount 需要区域的item总数
+     * @param addEnd    区域不够时是否在尾部扩展，否则在头部扩展
+     * @return 扩展后主轴方向上的区域个数
+     */
+    int ensureCapacity(int itemCount, boolean addEnd);
+
+    /**
+     * @return 交叉轴方向上的区域个数
+     */
+    int getRowCount();
+
+    /**
+     * @return 主轴方向上的区域个数
+     */
+    int getColumnCount();
+
+    /**
+     * 按顺序为count个item确定位置
+     *
+     * @param sizes       item的宽高，每2个int依次为宽、高
+     * @param count       item个数
+     * @param orientation 排列方向，{@link #HORIZONTAL}或{@link #VERTICAL}
+     * @param width       内容区域的宽
+     * @param height      内容区域的高
+     * @param addEnd      是否向后添加，否则向前添加
+     * @param outRects    输出位置，每4个int依次为left、top、right、bottom，相对于内容区域左上角
+     * @param outCells    输出每个item占用的区域，不小于0，区域扩展后保持不变
+     * @return 成功确定位置的个数，区域不足时提前结束
+     */
+    int place(int[] sizes, int count, int orientation, int width, int height, boolean addEnd,
+              int[] outRects, int[] outCells);
+
+    /**
+     * 释放item占用的区域
+     *
+     * @param cell place时输出的区域
+     */
+    void release(int cell);
+
+    /**
+     * 内容区域在头部扩展后，已确定的位置整体偏移
+     */
+    void offset(int dx, int dy);
+
+    /**
+     * @return reset之后确定位置时累计查找过的区域个数，用于性能统计，不统计时返回0
+     */
+    long getScannedCellCount();
+}
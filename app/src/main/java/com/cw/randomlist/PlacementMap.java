@@ -0,0 +1,146 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * item id -> 位置记录的哈希表，key为long，值直接存在int数组中，不产生任何对象。
+ * 每条记录依次为left、top、right、bottom、区域、宽、高
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class PlacementMap {
+
+    static final int CELL = 4;
+    static final int WIDTH = 5;
+    static final int HEIGHT = 6;
+    static final int VALUE_SIZE = 7;
+
+    private long[] mKeys;
+    private boolean[] mUsed;
+    private int[] mValues;
+    private int mSize;
+
+    PlacementMap() {
+        allocate(16);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 记录id的位置，已有时覆盖
+     *
+     * @param values VALUE_SIZE个int
+     */
+    void put(long id, int[] values) {
+        if ((mSize + 1) * 2 > mKeys.length) {
+            resize(mKeys.length * 2);
+        }
+        int slot = findSlot(id);
+        if (!mUsed[slot]) {
+            mUsed[slot] = true;
+            mKeys[slot] = id;
+            mSize++;
+        }
+        System.arraycopy(values, 0, mValues, slot * VALUE_SIZE, VALUE_SIZE);
+    }
+
+    /**
+     * 取出并删除id的位置
+     *
+     * @return 没有记录时返回false
+     */
+    boolean remove(long id, int[] outValues) {
+        int slot = findSlot(id);
+        if (!mUsed[slot]) {
+            return false;
+        }
+        System.arraycopy(mValues, slot * VALUE_SIZE, outValues, 0, VALUE_SIZE);
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * 槽位个数，和isSlotUsed、getValue一起用于遍历
+     */
+    int slotCount() {
+        return mKeys.length;
+    }
+
+    boolean isSlotUsed(int slot) {
+        return mUsed[slot];
+    }
+
+    int getValue(int slot, int field) {
+        return mValues[slot * VALUE_SIZE + field];
+    }
+
+    void clear() {
+        Arrays.fill(mUsed, false);
+        mSize = 0;
+    }
+
+    private int findSlot(long id) {
+        int mask = mKeys.length - 1;
+        int slot = hash(id) & mask;
+        while (mUsed[slot] && mKeys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * 删除后把同一条探测链上后面的记录往前移，保证查找不会提前遇到空位
+     */
+    private void removeSlot(int slot) {
+        int mask = mKeys.length - 1;
+        mUsed[slot] = false;
+        mSize--;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!mUsed[next]) {
+                return;
+            }
+            int home = hash(mKeys[next]) & mask;
+            // home在(slot, next]之间时不需要移动
+            boolean between = slot <= next ? (home > slot && home <= next) : (home > slot || home <= next);
+            if (!between) {
+                mKeys[slot] = mKeys[next];
+                mUsed[slot] = true;
+                System.arraycopy(mValues, next * VALUE_SIZE, mValues, slot * VALUE_SIZE, VALUE_SIZE);
+                mUsed[next] = false;
+                slot = next;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mUsed = new boolean[capacity];
+        mValues = new int[capacity * VALUE_SIZE];
+        mSize = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] keys = mKeys;
+        boolean[] used = mUsed;
+        int[] values = mValues;
+        allocate(capacity);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                int slot = findSlot(keys[i]);
+                mUsed[slot] = true;
+                mKeys[slot] = keys[i];
+                System.arraycopy(values, i * VALUE_SIZE, mValues, slot * VALUE_SIZE, VALUE_SIZE);
+                mSize++;
+            }
+        }
+    }
+}
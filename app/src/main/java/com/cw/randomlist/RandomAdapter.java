@@ -15,6 +15,97 @@ public abstract class RandomAdapter {
 
     public abstract View getView(Context context, int position, View convertView);
 
+    /**
+     * @return view type的个数，大于1时convertView只会是同一类型的View
+     */
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+    /**
+     * @return position的view type，范围为0到{@link #getViewTypeCount()} - 1
+     */
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+    /**
+     * item是否有稳定的id。返回true时item的位置按id保留：被移除后在同一批数据变化中重新插入、
+     * 或者notifyDataSetChanged后仍然存在的item回到原来的位置，不重新随机
+     *
+     * @see #getItemId(int)
+     */
+    public boolean hasStableIds() {
+        return false;
+    }
+
+    /**
+     * @return position对应的item的id，{@link #hasStableIds()}返回true时同一个item的id不能变化
+     */
+    public long getItemId(int position) {
+        return position;
+    }
+
+    /**
+     * 是否能不创建View直接提供item的尺寸，返回true时RandomLayout可以在工作线程中计算位置
+     *
+     * @see RandomLayout#setAsyncLayout(boolean)
+     */
+    public boolean hasItemSizes() {
+        return false;
+    }
+
+    /**
+     * 提供item的尺寸，{@link #hasItemSizes()}返回true时才会调用。
+     * 在工作线程中调用，不能访问View
+     *
+     * @param outSize 输出宽、高，单位px
+     */
+    public void getItemSize(int position, int[] outSize) {
+    }
+
+    /**
+     * 是否使用轻量模式：item不创建View，由RandomLayout按{@link #getLiteItem(int, LiteItem)}提供的数据直接绘制，
+     * 只有{@link #isInteractive(int)}返回true的item才通过getView创建View。轻量模式下总是只挂载可见区域内的View
+     */
+    public boolean isLiteMode() {
+        return false;
+    }
+
+    /**
+     * 提供轻量模式下item的绘制数据，测量和每次绘制时都会调用，不要在这里创建对象
+     *
+     * @param outItem 复用的绘制数据，已恢复为默认值
+     */
+    public void getLiteItem(int position, LiteItem outItem) {
+    }
+
+    /**
+     * 轻量模式下item是否需要交互，需要时通过getView创建真正的View
+     */
+    public boolean isInteractive(int position) {
+        return false;
+    }
+
+    /**
+     * 按payload直接更新已经绑定的View，例如只修改文字或颜色。返回true表示已经更新并且View的尺寸没有变化，
+     * 这时不会重新测量和布局整个RandomLayout；返回false时按{@link #getView(Context, int, View)}重新绑定
+     *
+     * @param view 当前绑定position的View
+     */
+    public boolean onBindPayload(View view, int position, Object payload) {
+        return false;
+    }
+
+    /**
+     * 可见item的position范围变化，滚动或布局后每帧最多回调一次，在主线程中调用
+     *
+     * @param minPosition 可见item中最小的position
+     * @param maxPosition 可见item中最大的position
+     */
+    public void onVisibleRangeChanged(int minPosition, int maxPosition) {
+    }
+
     public void setRandomLayout(RandomLayout randomLayout) {
         mRandomLayout = randomLayout;
     }
@@ -24,4 +115,56 @@ public abstract class RandomAdapter {
             mRandomLayout.refresh();
         }
     }
+
+    /**
+     * 从positionStart开始插入了itemCount个item，只为新item分配位置
+     */
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        if (mRandomLayout != null) {
+            mRandomLayout.onItemRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * 从positionStart开始移除了itemCount个item，只释放它们占用的区域
+     */
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        if (mRandomLayout != null) {
+            mRandomLayout.onItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * 从positionStart开始的itemCount个item内容变化，只重新绑定这些item
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (mRandomLayout != null) {
+            mRandomLayout.onItemRangeChanged(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * position的item内容变化，payload描述变化的部分，交给{@link #onBindPayload(View, int, Object)}在原来的View上更新
+     */
+    public void notifyItemChanged(int position, Object payload) {
+        notifyItemRangeChanged(position, 1, payload);
+    }
+
+    /**
+     * 从positionStart开始的itemCount个item内容变化，payload为null时和{@link #notifyItemRangeChanged(int, int)}相同
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        if (mRandomLayout != null) {
+            mRandomLayout.onItemRangeChanged(positionStart, itemCount, payload);
+        }
+    }
+
+    /**
+     * item从fromPosition移动到了toPosition，位置跟着item一起移动
+     */
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        if (mRandomLayout != null) {
+            mRandomLayout.onItemMoved(fromPosition, toPosition);
+        }
+    }
 }
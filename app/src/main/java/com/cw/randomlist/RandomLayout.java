@@ -1,53 +1,64 @@
 package com.cw.randomlist;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.Interpolator;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class RandomLayout extends ScrollViewGroup {
 
-    private Random mRdm;
-    /**
-     * 行数
-     */
-    private int mXRegularity;
     /**
      * 列数
      */
     private int mYRegularity;
     /**
-     * 尾部空闲的个数
+     * 位置计算引擎
      */
-    private int mEndFree;
+    private PlacementEngine mEngine;
     /**
-     * 头部空闲的个数
+     * 随机数种子，同一个种子得到同样的排列
      */
-    private int mStartFree;
+    private long mSeed;
     /**
-     * 区域的二维数组
+     * 提供子View的adapter
      */
-    private int[][] mAreaDensity = new int[4][0];
+    private RandomAdapter mAdapter;
     /**
-     * 存放已经确定位置的View
+     * 记录被回收的View，以便重复利用，按view type分组
      */
-    private Set<View> mFixedViews;
+    private RecycledViewPool mRecycledViews;
     /**
-     * 提供子View的adapter
+     * 回收集合是否是外部设置的共享集合
      */
-    private RandomAdapter mAdapter;
+    private boolean mSharedPool;
     /**
-     * 记录被回收的View，以便重复利用
+     * 同一批数据变化中暂时detach的子View，还没有从布局中移除，重新挂载时直接attach
      */
-    private List<View> mRecycledViews;
+    private View[] mDetachedViews = new View[0];
+    private int mDetachedCount;
+    private boolean mFlushDetachedScheduled;
+    private final Runnable mFlushDetachedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushDetachedScheduled = false;
+            flushDetachedViews();
+        }
+    };
     /**
      * 是否已经layout
      */
@@ -56,10 +67,136 @@ public class RandomLayout extends ScrollViewGroup {
      * 记录本次计算的自身宽高
      */
     private int mLastH;
+    /**
+     * 向前添加时内容在头部增长的总长度，内容起点的坐标为-mOriginOffset，已有item的坐标保持不变
+     */
+    private int mOriginOffset;
     /**
      * 结尾布局
      */
     private boolean mLayoutOnEnd = true;
+    /**
+     * 是否只挂载可见区域内的子View
+     */
+    private boolean mVirtualized;
+    /**
+     * 可见区域之外额外挂载的缓冲距离
+     */
+    private int mViewportBuffer;
+    /**
+     * 已知的item个数
+     */
+    private int mItemCount;
+    /**
+     * 已确定位置的item个数
+     */
+    private int mPlacedCount;
+    /**
+     * item的尺寸，每2个int依次为宽、高，宽为-1表示还没有测量
+     */
+    private int[] mItemSizes = new int[0];
+    /**
+     * 虚拟化模式下尺寸是否只是估计值，为true时在第一次挂载或预取时再测量
+     */
+    private boolean[] mSizeEstimated = new boolean[0];
+    private final int[] mTmpSize = new int[2];
+    /**
+     * item的位置，每4个int依次为left、top、right、bottom
+     */
+    private int[] mItemRects = new int[0];
+    /**
+     * item占用的区域下标，-1表示还没有分配区域
+     */
+    private int[] mItemCells = new int[0];
+    /**
+     * 还没有确定位置的position
+     */
+    private int[] mPendingPositions = new int[0];
+    private int mPendingCount;
+    /**
+     * 按主轴起点排序的position，用于快速查找可见区域和边缘区域内的item
+     */
+    private int[] mSortedPositions = new int[0];
+    /**
+     * 合并排序数组时复用的临时数组
+     */
+    private long[] mMergeKeys;
+    /**
+     * 已确定的位置的空间索引，id为position，用于触摸时快速找到手指下的item
+     */
+    private final SpatialHash mItemHash = new SpatialHash();
+    /**
+     * item的位置在mItemHash中的句柄，-1表示没有
+     */
+    private int[] mItemEntries = new int[0];
+    /**
+     * item的id，adapter有稳定的id时才有意义
+     */
+    private long[] mItemIds = new long[0];
+    /**
+     * 被移除但还保留着区域的item的位置，id -> 位置，在下一帧之前重新插入的item直接回到原来的位置
+     */
+    private final PlacementMap mRetainedPlacements = new PlacementMap();
+    private final int[] mTmpPlacement = new int[PlacementMap.VALUE_SIZE];
+    private boolean mReleaseRetainedScheduled;
+    private final Runnable mReleaseRetainedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mReleaseRetainedScheduled = false;
+            releaseRetainedPlacements();
+        }
+    };
+    /**
+     * item的最大宽高
+     */
+    private int mMaxItemWidth;
+    private int mMaxItemHeight;
+    /**
+     * 固定的item尺寸，大于0时不测量任何子View
+     */
+    private int mFixedItemWidth;
+    private int mFixedItemHeight;
+    /**
+     * 按LayoutParams尺寸和MeasureSpec缓存的测量结果
+     */
+    private final MeasureCache mMeasureCache = new MeasureCache();
+    /**
+     * 当前挂载的View，position -> View。子View的下标和position没有对应关系，按position查找View都通过它
+     */
+    private SparseArray<View> mActiveViews;
+    /**
+     * 数据变化时重新对应挂载的View使用的临时数组
+     */
+    private int[] mRemapKeys = new int[0];
+    private View[] mRemapViews = new View[0];
+    /**
+     * 计算位置时复用的数组
+     */
+    private final int[] mTmpRect = new int[4];
+    /**
+     * 批量计算位置时复用的数组
+     */
+    private int[] mPlaceSizes = new int[0];
+    private int[] mPlaceRects = new int[0];
+    private int[] mPlaceCells = new int[0];
+    /**
+     * 边缘缩放的最小比例
+     */
+    private float mEdgeMinScale = 0.5f;
+    /**
+     * 边缘缩放的曲线，输入超出可见区域的比例，输出缩小的比例，为null时线性缩小
+     */
+    private Interpolator mEdgeScaleInterpolator;
+    /**
+     * 当前处于边缘区域、被缩放的position
+     */
+    private int[] mScaledPositions = new int[0];
+    private int mScaledCount;
+    /**
+     * 本帧处于边缘区域的position，和mScaledPositions交替使用
+     */
+    private int[] mBandPositions = new int[0];
+    private int mBandCount;
 
     /**
      * 构造方法
@@ -77,8 +214,13 @@ public class RandomLayout extends ScrollViewGroup {
      * 设置数据源
      */
     public void setAdapter(RandomAdapter adapter) {
+        cancelAsyncPlacement();
         this.mAdapter = adapter;
         this.mAdapter.setRandomLayout(this);
+        if (adapter.isLiteMode()) {
+            // 轻量item不创建View，只能按可见区域挂载需要交互的View
+            mVirtualized = true;
+        }
     }
 
     /**
@@ -87,6 +229,9 @@ public class RandomLayout extends ScrollViewGroup {
      * @param layoutOnEnd layoutOnEnd
      */
     public void setLayoutOnEnd(boolean layoutOnEnd) {
+        if (mLayoutOnEnd != layoutOnEnd) {
+            cancelAsyncPlacement();
+        }
         mLayoutOnEnd = layoutOnEnd;
     }
 
@@ -101,63 +246,205 @@ public class RandomLayout extends ScrollViewGroup {
         return mHasLayout;
     }
 
+    /**
+     * 设置位置计算引擎，需要在setAdapter之前调用
+     */
+    public void setPlacementEngine(PlacementEngine engine) {
+        cancelAsyncPlacement();
+        mEngine = engine;
+        mEngine.reset(mSeed);
+    }
+
+    public PlacementEngine getPlacementEngine() {
+        return mEngine;
+    }
+
+    /**
+     * 设置随机数种子，同一个种子、同样的数据得到同样的排列。需要在setAdapter之前调用
+     */
+    public void setSeed(long seed) {
+        cancelAsyncPlacement();
+        mSeed = seed;
+        mEngine.reset(seed);
+    }
+
+    /**
+     * 设置是否只挂载可见区域内的子View，滚出可见区域的View会被回收，滚回时重新绑定。
+     * 需要在setAdapter之前调用
+     *
+     * @param virtualized virtualized
+     */
+    public void setVirtualized(boolean virtualized) {
+        mVirtualized = virtualized;
+    }
+
+    /**
+     * 是否只挂载可见区域内的子View
+     */
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    /**
+     * 设置可见区域之外额外挂载的缓冲距离（虚拟化模式）
+     *
+     * @param buffer 缓冲距离，单位px
+     */
+    public void setViewportBuffer(int buffer) {
+        mViewportBuffer = Math.max(0, buffer);
+        fillViewport();
+    }
+
+    public int getViewportBuffer() {
+        return mViewportBuffer;
+    }
+
+    /**
+     * 设置所有item都使用固定尺寸，内容长度直接由列数计算，不再测量任何子View。
+     * 传入0时恢复按子View测量
+     *
+     * @param width  item的宽，单位px
+     * @param height item的高，单位px
+     */
+    public void setFixedItemSize(int width, int height) {
+        mFixedItemWidth = Math.max(0, width);
+        mFixedItemHeight = Math.max(0, height);
+        requestLayout();
+    }
+
+    /**
+     * 是否所有item都使用固定尺寸
+     */
+    public boolean hasFixedItemSize() {
+        return mFixedItemWidth > 0 && mFixedItemHeight > 0;
+    }
+
+    /**
+     * 设置边缘缩放的最小比例，设置为1时关闭边缘缩放
+     *
+     * @param minScale 0~1
+     */
+    public void setEdgeMinScale(float minScale) {
+        mEdgeMinScale = Math.max(0f, Math.min(1f, minScale));
+        updateEdgeScale();
+    }
+
+    public float getEdgeMinScale() {
+        return mEdgeMinScale;
+    }
+
+    /**
+     * 设置边缘缩放的曲线
+     *
+     * @param interpolator 输入超出可见区域的比例(0~1)，输出缩小的比例，为null时线性缩小
+     */
+    public void setEdgeScaleInterpolator(Interpolator interpolator) {
+        mEdgeScaleInterpolator = interpolator;
+        updateEdgeScale();
+    }
+
     /**
      * 初始化方法
      */
     private void init() {
         mHasLayout = false;
-        mRdm = new Random();
-        mFixedViews = new HashSet<>();
-        mRecycledViews = new LinkedList<>();
+        mSeed = new Random().nextLong();
+        mEngine = new GridPlacementEngine();
+        mEngine.reset(mSeed);
+        mRecycledViews = new RecycledViewPool();
+        mActiveViews = new SparseArray<>();
     }
 
     /**
      * 重新设置区域，把所有的区域记录都归0
      */
     private void resetAllAreas() {
-        mFixedViews.clear();
-        for (int i = 0; i < mYRegularity; i++) {
-            for (int j = 0; j < mXRegularity; j++) {
-                mAreaDensity[i][j] = 0;
-            }
-        }
+        cancelAsyncPlacement();
+        clearPrefetchViews();
+        flushDetachedViews();
+        mEngine.reset(mSeed);
+        mItemHash.clear();
+        mRetainedPlacements.clear();
+        mActiveViews.clear();
+        mItemCount = 0;
+        mPlacedCount = 0;
+        mPendingCount = 0;
+        mMaxItemWidth = 0;
+        mMaxItemHeight = 0;
+        mOriginOffset = 0;
+        mVisibleCount = 0;
     }
 
     /**
-     * 设置mXRegularity和mXRegularity，确定区域的个数
+     * 确定区域的个数，区域不够时按布局方向扩展
      */
     private void refreshRegularity() {
-        this.mXRegularity = mAreaDensity.length;
-        int adapterCount = mAdapter.getCount();
-        if (mLayoutOnEnd) {
-            this.mEndFree = (adapterCount + mStartFree) % mXRegularity;
-            this.mYRegularity = (int) Math.ceil((float) (adapterCount + mStartFree) / mXRegularity);
-        } else {
-            this.mStartFree = (adapterCount + mEndFree) % mXRegularity;
-            this.mYRegularity = (int) Math.ceil((float) (adapterCount + mEndFree) / mXRegularity);
+        synchronized (mEngine) {
+            this.mYRegularity = mEngine.ensureCapacity(mAdapter.getCount(), mLayoutOnEnd);
         }
-        // 存放区域的二维数组,区域不满时自动扩展
-        this.mAreaDensity = extendsArray(mAreaDensity, mYRegularity - mAreaDensity[0].length, mLayoutOnEnd);
     }
 
     /**
-     * 把复用的View加入集合，新加入的放入集合第一个。
+     * 把复用的View按绑定时的view type加入集合，这种类型已满时丢弃
      */
     private void pushRecycler(View scrapView) {
         if (null != scrapView) {
-            mRecycledViews.add(0, scrapView);
+            ViewGroup.LayoutParams params = scrapView.getLayoutParams();
+            int viewType = params instanceof LayoutParams ? ((LayoutParams) params).mViewType : 0;
+            if (!mRecycledViews.put(scrapView, viewType)) {
+                recordCount(LayoutMetrics.COUNTER_RECYCLER_EVICTION, 1);
+            }
         }
     }
 
     /**
-     * 取出复用的View，从集合的第一个位置取出
+     * 取出指定类型的复用View，后加入的先取出
      */
-    private View popRecycler() {
-        final int size = mRecycledViews.size();
-        if (size > 0) {
-            return mRecycledViews.remove(0);
-        } else {
-            return null;
+    private View popRecycler(int viewType) {
+        return mRecycledViews.get(viewType);
+    }
+
+    /**
+     * @return position的view type，只有一种类型时总是0
+     */
+    private int getItemViewType(int position) {
+        return mAdapter.getViewTypeCount() > 1 ? mAdapter.getItemViewType(position) : 0;
+    }
+
+    /**
+     * 回收集合，可以设置每种类型最多保留的View个数、读取命中和丢弃的统计
+     */
+    public RecycledViewPool getRecycledViewPool() {
+        return mRecycledViews;
+    }
+
+    /**
+     * 使用共享的回收集合，多个RandomLayout可以复用彼此回收的View。
+     * 使用共享集合时，只挂载可见区域的RandomLayout离开窗口时会把挂载的View交回集合，重新进入窗口时再挂载
+     *
+     * @param pool 为null时恢复为自己的回收集合
+     */
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        clearPrefetchViews();
+        mSharedPool = pool != null;
+        mRecycledViews = pool != null ? pool : new RecycledViewPool();
+    }
+
+    /**
+     * 按系统的内存等级逐步释放缓存，在Activity或Application的onTrimMemory中调用：
+     * 先丢弃回收集合中的View，再丢弃预取的View和为移除的item保留的位置，最后清空测量缓存。
+     * 已经确定的位置不会丢弃
+     *
+     * @param level ComponentCallbacks2中的TRIM_MEMORY_*
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            clearPrefetchViews();
+            releaseRetainedPlacements();
+        }
+        mRecycledViews.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mMeasureCache.clear();
         }
     }
 
@@ -168,64 +455,237 @@ public class RandomLayout extends ScrollViewGroup {
         if (null == mAdapter) {
             return;
         }
+        long startNs = metricsStart();
         int count = mAdapter.getCount();
-        for (int i = mFixedViews.size(); i < count; i++) {
-            // 从集合中取出之前存入的子View
-            View convertView = popRecycler();
-            View newChild = mAdapter.getView(getContext(), i, convertView);
-            if (newChild != convertView) {
-                // 这说明没发生复用，所以重新把这个没用到的子View存入集合中
-                pushRecycler(convertView);
+        int start = mItemCount;
+        insertItems(start, count - start);
+        if (!mVirtualized) {
+            // 虚拟化模式下子View在布局时按可见区域挂载
+            addChildren(start, count - start);
+        }
+        recordTime(LayoutMetrics.TIMER_GENERATE_CHILDREN, startNs);
+    }
+
+    /**
+     * 从positionStart开始产生itemCount个子View，等待下次布局时确定位置。
+     * 整批在一次布局事务中挂载：不逐个触发requestLayout和invalidate，由调用方最后统一请求一次布局
+     */
+    private void addChildren(int positionStart, int itemCount) {
+        int attached = 0;
+        mBlockLayoutRequests = true;
+        try {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                View newChild = obtainView(i, true);
+                attachChild(newChild, -1);
+                mActiveViews.put(i, newChild);
+                attached++;
+                if (mItemCells[i] >= 0) {
+                    // 按id找回了位置
+                    layoutAtItemRect(newChild, i);
+                }
+            }
+        } finally {
+            mBlockLayoutRequests = false;
+        }
+        if (attached > 0) {
+            invalidate();
+            recordCount(LayoutMetrics.COUNTER_VIEWS_ATTACHED, attached);
+        }
+    }
+
+    /**
+     * 在布局中挂载子View，不请求布局。暂时detach的View直接attach回去，不需要完整的添加
+     *
+     * @param index 挂载的下标，-1表示最后
+     */
+    private void attachChild(View child, int index) {
+        if (child.getParent() == this) {
+            attachViewToParent(child, index, child.getLayoutParams());
+        } else {
+            addViewInLayout(child, index, child.getLayoutParams(), true);
+        }
+    }
+
+    /**
+     * 暂时detach子View，同一批数据变化中重新挂载时直接attach，这一批结束后还没挂载的才真正移除
+     */
+    private void scrapDetached(View child) {
+        if (mDetachedCount == mDetachedViews.length) {
+            mDetachedViews = Arrays.copyOf(mDetachedViews, Math.max(16, mDetachedCount * 2));
+        }
+        mDetachedViews[mDetachedCount++] = child;
+    }
+
+    /**
+     * 取出一个同类型的detach的子View
+     *
+     * @return 没有时返回null
+     */
+    private View popDetached(int viewType) {
+        for (int i = mDetachedCount - 1; i >= 0; i--) {
+            View view = mDetachedViews[i];
+            if (((LayoutParams) view.getLayoutParams()).mViewType == viewType) {
+                mDetachedViews[i] = mDetachedViews[--mDetachedCount];
+                mDetachedViews[mDetachedCount] = null;
+                return view;
             }
-            ViewGroup.LayoutParams layoutParams = newChild.getLayoutParams();
-            if (layoutParams == null) {
-                layoutParams = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        }
+        return null;
+    }
+
+    /**
+     * 在这一批数据变化结束后移除没有重新挂载的detach的子View
+     */
+    private void scheduleFlushDetached() {
+        if (!mFlushDetachedScheduled) {
+            mFlushDetachedScheduled = true;
+            post(mFlushDetachedRunnable);
+        }
+    }
+
+    /**
+     * 把没有重新挂载的detach的子View从布局中移除，放入回收集合
+     */
+    private void flushDetachedViews() {
+        for (int i = 0; i < mDetachedCount; i++) {
+            View view = mDetachedViews[i];
+            mDetachedViews[i] = null;
+            removeDetachedView(view, false);
+            pushRecycler(view);
+        }
+        mDetachedCount = 0;
+    }
+
+    /**
+     * 从adapter获取position对应的View，优先复用回收集合中的View
+     */
+    private View obtainView(int position) {
+        return obtainView(position, false);
+    }
+
+    /**
+     * @param reuseDetached 是否优先复用detach的子View，只有马上挂载到这个布局时才能复用
+     */
+    private View obtainView(int position, boolean reuseDetached) {
+        // 从集合中取出之前存入的同类型子View
+        int viewType = getItemViewType(position);
+        View detached = reuseDetached ? popDetached(viewType) : null;
+        View convertView = detached != null ? detached : popRecycler(viewType);
+        recordCount(convertView != null ? LayoutMetrics.COUNTER_RECYCLER_HIT : LayoutMetrics.COUNTER_RECYCLER_MISS, 1);
+        long startNs = metricsStart();
+        View newChild = mAdapter.getView(getContext(), position, convertView);
+        recordTime(LayoutMetrics.TIMER_BIND, startNs);
+        if (newChild != convertView) {
+            // 这说明没发生复用，所以重新把这个没用到的子View存入集合中
+            if (detached != null) {
+                scrapDetached(detached);
+            } else {
+                pushRecycler(convertView);
             }
-            super.addView(newChild, layoutParams);
         }
+        LayoutParams params = toLayoutParams(newChild.getLayoutParams());
+        if (params != newChild.getLayoutParams()) {
+            newChild.setLayoutParams(params);
+        }
+        params.mCell = -1;
+        params.mViewType = viewType;
+        params.mMeasured = false;
+        // 复用的View可能还保留着边缘缩放
+        newChild.setScaleX(1f);
+        newChild.setScaleY(1f);
+        return newChild;
+    }
+
+    /**
+     * 转换为RandomLayout.LayoutParams，已经是的话直接返回
+     */
+    private LayoutParams toLayoutParams(ViewGroup.LayoutParams layoutParams) {
+        if (layoutParams instanceof LayoutParams) {
+            return (LayoutParams) layoutParams;
+        } else if (layoutParams != null) {
+            return new LayoutParams(layoutParams.width, layoutParams.height);
+        }
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
     }
 
     /**
      * 重新更新子View
      */
     public void refresh() {
+        cancelAsyncPlacement();
         //resetAllAreas();// 重新分配区域
+        if (mAdapter != null && mAdapter.hasStableIds() && mItemCount > 0) {
+            // 数据整体变化，先移除所有item并保留位置，重新插入时按id找回
+            if (!mVirtualized) {
+                // 只detach，重新产生子View时直接attach回去
+                for (int i = 0; i < getChildCount(); i++) {
+                    scrapDetached(getChildAt(i));
+                }
+                detachAllViewsFromParent();
+                mActiveViews.clear();
+            }
+            removeItems(0, mItemCount);
+        }
         refreshRegularity();
         generateChildren();// 重新产生子View
+        flushDetachedViews();
         requestLayout();
     }
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
-        for (int i = 0; i < getChildCount(); i++) {
-            final View view = getChildAt(i);
-            final int[] location = new int[2];
-            view.getLocationOnScreen(location);
-
-            float scale;
-            int out = 0;
-            if (getOrientation() == HORIZONTAL) {
-                if (location[0] < 0) {
-                    out = Math.abs(location[0]);
-                }
-                if (location[0] + view.getWidth() > getParentWidth()) {
-                    out = Math.abs(location[0] + view.getWidth() - getParentWidth());
-                }
-            } else {
-                if (location[1] < 0) {
-                    out = Math.abs(location[1]);
-                }
-                if (location[1] + view.getHeight() > getParentHeight()) {
-                    out = Math.abs(location[1] + view.getHeight() - getParentHeight());
-                }
-            }
-            scale = 1 - (float) out / view.getWidth();
-            if (scale < 0.5f) {
-                scale = 0.5f;
+        fillViewport();
+        updateEdgeScale();
+        int delta = getOrientation() == VERTICAL ? t - oldt : l - oldl;
+        if (delta != 0) {
+            mScrollDirection = delta > 0 ? 1 : -1;
+        }
+        schedulePrefetch();
+        scheduleVisibleRangeCheck();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        if (refreshRate < 30f) {
+            refreshRate = 60f;
+        }
+        mFrameIntervalNs = (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
+        if (mSharedPool && mVirtualized) {
+            // 离开窗口时交回了挂载的View，重新挂载可见区域
+            fillViewport();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mTouchTarget = null;
+        cancelAsyncPlacement();
+        Choreographer.getInstance().removeFrameCallback(mPrefetchFrameCallback);
+        removeCallbacks(mPrefetchRunnable);
+        mPrefetchScheduled = false;
+        removeCallbacks(mVisibleRangeRunnable);
+        mVisibleRangeScheduled = false;
+        removeCallbacks(mFlushDetachedRunnable);
+        mFlushDetachedScheduled = false;
+        flushDetachedViews();
+        if (mMetricsReportScheduled) {
+            // 离开窗口前把已经统计的结果交出去
+            removeCallbacks(mMetricsReportRunnable);
+            mMetricsReportRunnable.run();
+        }
+        if (mSharedPool && mVirtualized) {
+            // 不在屏幕上时挂载的View交给其他RandomLayout复用
+            clearPrefetchViews();
+            for (int i = 0; i < mActiveViews.size(); i++) {
+                pushRecycler(mActiveViews.valueAt(i));
             }
-            view.setScaleX(scale);
-            view.setScaleY(scale);
+            mActiveViews.clear();
+            removeAllViewsInLayout();
         }
     }
 
@@ -237,223 +697,1972 @@ public class RandomLayout extends ScrollViewGroup {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int maxChildWidth = 0;
-        int maxChildHeight = 0;
-        for (int i = 0; i < getChildCount(); i++) {
-            View child = getChildAt(i);
-            measureChildren(widthMeasureSpec, heightMeasureSpec);
-            int measuredWidth = child.getMeasuredWidth();
-            if (measuredWidth > maxChildWidth) {
-                maxChildWidth = measuredWidth;
-            }
-            int measuredHeight = child.getMeasuredHeight();
-            if (measuredHeight > maxChildHeight) {
-                maxChildHeight = measuredHeight;
-            }
+        long startNs = metricsStart();
+        // 每个子View最多测量一次：只确定新item的尺寸，已经确定位置的子View只在内容变化时按位置的大小重新测量
+        if (!isAsyncLayoutActive()) {
+            // 异步布局时尺寸由adapter在工作线程中提供
+            measureItems(widthMeasureSpec, heightMeasureSpec);
         }
+        remeasureChangedChildren();
+        int maxChildWidth = maxItemWidth();
+        int maxChildHeight = maxItemHeight();
         int width, height;
         if (getOrientation() == VERTICAL) {
             width = MeasureSpec.getSize(widthMeasureSpec);
-            height = (int) (mYRegularity * maxChildHeight * 1.2);
+            height = contentExtent(mYRegularity, maxChildHeight);
         } else {
-            width = (int) (mYRegularity * maxChildWidth * 1.2);
+            width = contentExtent(mYRegularity, maxChildWidth);
             height = MeasureSpec.getSize(heightMeasureSpec);
         }
         setMeasuredDimension(width, height);
+        recordTime(LayoutMetrics.TIMER_MEASURE, startNs);
+    }
+
+    /**
+     * 主轴方向上的总长度，每个区域是item最大长度的1.2倍
+     *
+     * @param columns       主轴方向上的区域个数
+     * @param maxItemExtent item在主轴方向上的最大长度
+     */
+    static int contentExtent(int columns, int maxItemExtent) {
+        return (int) (columns * maxItemExtent * 1.2);
     }
 
     @Override
     public void onLayout(boolean changed, int l, int t, int r, int b) {
-        // 确定自身的宽高
-        int thisW, thisH;
-        if (getOrientation() == VERTICAL) {
-            thisW = r - l - this.getPaddingLeft() - this.getPaddingRight();
-            thisH = b - t - this.getPaddingTop() - this.getPaddingBottom();
-        } else {
-            thisH = r - l - this.getPaddingLeft() - this.getPaddingRight();
-            thisW = b - t - this.getPaddingTop() - this.getPaddingBottom();
-        }
+        long startNs = metricsStart();
+        // 确定自身内容区域的宽高
+        int width = r - l - this.getPaddingLeft() - this.getPaddingRight();
+        int height = b - t - this.getPaddingTop() - this.getPaddingBottom();
+        //VERTICAL时代表实际布局的高，HORIZONTAL时代表实际布局的宽
+        int thisH = getOrientation() == VERTICAL ? height : width;
 
-        //如果是向前添加布局，将已经布局的view整体向后偏移offset
-        int offset = thisH - mLastH;
-        if (!mLayoutOnEnd) {
-            for (int i = 0; i < getChildCount(); i++) {
-                View child = getChildAt(i);
+        //如果是向前添加布局，内容在头部增长offset，只移动坐标原点，已经布局的view和滚动位置都保持不变
+        if (!mLayoutOnEnd && mHasLayout) {
+            int offset = thisH - mLastH;
+            mOriginOffset += offset;
+            synchronized (mEngine) {
                 if (getOrientation() == VERTICAL) {
-                    child.layout(child.getLeft(), child.getTop() + offset, child.getRight(), child.getBottom() + offset);
+                    mEngine.offset(0, offset);
                 } else {
-                    child.layout(child.getLeft() + offset, child.getTop(), child.getRight() + offset, child.getBottom());
+                    mEngine.offset(offset, 0);
                 }
             }
         }
 
-        //记录本次计算的自身宽高，VERTICAL时代表实际布局的高，HORIZONTAL时代表实际布局的宽
+        //记录本次计算的自身宽高
         mLastH = thisH;
+        // 空间索引的格子和最大的item一样大，只在最大尺寸成倍变化时才重新分配
+        mItemHash.fitBucketSize(maxItemWidth(), maxItemHeight());
 
-        //自身内容区域的右边和下边
-        int contentRight = r - getPaddingRight();
-        int contentBottom = b - getPaddingBottom();
-
-        final int count = getChildCount();
-        int areaCapacity = 1;// 区域密度，表示一个区域内可以放几个View
-
-        for (int i = 0; i < count; i++) {
-            final View child = getChildAt(i);
-            if (child.getVisibility() == View.GONE) { // gone掉的view是不参与布局
-                continue;
+        if (isAsyncLayoutActive()) {
+            // 交叉轴长度变化后之前的计算结果不能用，重新计算
+            int crossExtent = getOrientation() == VERTICAL ? width : height;
+            if (mAsyncPlacement != null && mAsyncPlacement.getCrossExtent() != crossExtent) {
+                cancelAsyncPlacement();
             }
-
-            if (!mFixedViews.contains(child)) {// mFixedViews用于存放已经确定好位置的View，存到了就没必要再次存放
-                LayoutParams params = (LayoutParams) child.getLayoutParams();
-                int childW = child.getLayoutParams().width;
-                int childH = child.getLayoutParams().height;
-                // 用自身的高度去除以分配值，可以算出每一个区域的宽和高
-                float rowH, colW;
-                if (getOrientation() == VERTICAL) {
-                    colW = thisW / (float) mXRegularity;
-                    rowH = thisH / (float) mYRegularity;
-                } else {
-                    rowH = thisW / (float) mXRegularity;
-                    colW = thisH / (float) mYRegularity;
+            if (mAsyncPlacement == null) {
+                startAsyncPlacement(crossExtent);
+            }
+        } else if (mVirtualized) {
+            // 只计算新item的位置，不创建View，还没测量的item排到后面
+            ensurePlaceCapacity(mPendingCount);
+            int sizedCount = 0;
+            for (int i = 0; i < mPendingCount; i++) {
+                int position = mPendingPositions[i];
+                if (mItemSizes[position * 2] >= 0) {
+                    mPendingPositions[i] = mPendingPositions[sizedCount];
+                    mPendingPositions[sizedCount] = position;
+                    mPlaceSizes[sizedCount * 2] = mItemSizes[position * 2];
+                    mPlaceSizes[sizedCount * 2 + 1] = mItemSizes[position * 2 + 1];
+                    sizedCount++;
                 }
-
-                int arrayIdx;
-                while ((arrayIdx = getAreaIdx(areaCapacity)) >= 0) { // 如果使用区域大于0，就可以为子View尝试分配
-                    int row = arrayIdx % mXRegularity;// 计算出在二维数组中的位置
-                    int col = arrayIdx / mXRegularity;
-
-                    //实际的排列方向
-                    float rowAct, colAct;
-                    if (getOrientation() == VERTICAL) {
-                        rowAct = row;
-                        colAct = col;
-                    } else {
-                        rowAct = col;
-                        colAct = row;
-                    }
-                    if (mAreaDensity[row][col] < areaCapacity) {// 区域密度未超过限定，将view置入该区域
-                        int xOffset = (int) colW - childW; // 区域宽度 和 子View的宽度差值，差值可以用来做区域内的位置随机
-                        if (xOffset <= 0) {
-                            xOffset = 1;
-                        }
-                        int yOffset = (int) rowH - childH;
-                        if (yOffset <= 0) {
-                            yOffset = 1;
-                        }
-                        // 确定左边，等于区域宽度*左边的区域
-                        params.mLeft = getPaddingLeft() + (int) (colW * rowAct + mRdm.nextInt(xOffset));
-                        int rightEdge = contentRight - childW;
-                        if (params.mLeft > rightEdge) {// 加上子View的宽度后不能超出右边界
-                            params.mLeft = rightEdge;
-                        }
-                        params.mRight = params.mLeft + childW;
-
-                        params.mTop = getPaddingTop() + (int) (rowH * colAct + mRdm.nextInt(yOffset));
-                        int bottomEdge = contentBottom - childH;
-                        if (params.mTop > bottomEdge) {// 加上子View的宽度后不能超出右边界
-                            params.mTop = bottomEdge;
-                        }
-                        params.mBottom = params.mTop + childH;
-
-                        /*if (!isOverlap(params)) {
-                            // 判断是否和别的View重叠了
-                        }*/
-                        mAreaDensity[row][col]++;// 没有重叠，把该区域的密度加1
-                        child.layout(params.mLeft, params.mTop, params.mRight, params.mBottom);// 布局子View
-                        mFixedViews.add(child);// 添加到已经布局的集合中
-                        break;
-                    }
+            }
+            int placed = placeItems(sizedCount, width, height);
+            for (int i = 0; i < placed; i++) {
+                int position = mPendingPositions[i];
+                mItemCells[position] = mPlaceCells[i];
+                System.arraycopy(mPlaceRects, i * 4, mTmpRect, 0, 4);
+                recordItemRect(position, mTmpRect);
+            }
+            mergeSortedPositions(mPendingPositions, placed);
+            System.arraycopy(mPendingPositions, placed, mPendingPositions, 0, mPendingCount - placed);
+            mPendingCount -= placed;
+        } else {
+            // 只有还没确定位置的View需要布局，已经布局的View位置保持不变，gone掉的view是不参与布局
+            ensurePlaceCapacity(mPendingCount);
+            int visibleCount = 0;
+            for (int i = 0; i < mPendingCount; i++) {
+                int position = mPendingPositions[i];
+                View child = getItemView(position);
+                if (child.getVisibility() != View.GONE && mItemSizes[position * 2] >= 0) {
+                    mPendingPositions[i] = mPendingPositions[visibleCount];
+                    mPendingPositions[visibleCount] = position;
+                    mPlaceSizes[visibleCount * 2] = mItemSizes[position * 2];
+                    mPlaceSizes[visibleCount * 2 + 1] = mItemSizes[position * 2 + 1];
+                    visibleCount++;
                 }
             }
+            int placed = placeItems(visibleCount, width, height);
+            for (int i = 0; i < placed; i++) {
+                int position = mPendingPositions[i];
+                mItemCells[position] = mPlaceCells[i];
+                System.arraycopy(mPlaceRects, i * 4, mTmpRect, 0, 4);
+                recordItemRect(position, mTmpRect);
+                View child = getItemView(position);
+                layoutAtItemRect(child, position);// 布局子View
+            }
+            mergeSortedPositions(mPendingPositions, placed);
+            System.arraycopy(mPendingPositions, placed, mPendingPositions, 0, mPendingCount - placed);
+            mPendingCount -= placed;
         }
-        mHasLayout = true;
-
-        //如果是向前添加布局,将布局滚动回原来位置
-        if (!mLayoutOnEnd) {
-            if (getOrientation() == VERTICAL) {
-                scrollBy(0, offset);
-            } else {
-                scrollBy(offset, 0);
+        // 内容变化后重新测量过的子View在原来的位置重新布局
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            LayoutParams params = (LayoutParams) child.getLayoutParams();
+            if (params.mCell >= 0 && child.isLayoutRequested()) {
+                child.layout(params.mLeft, params.mTop, params.mRight, params.mBottom);
             }
         }
+        mHasLayout = true;
+        fillViewport();
+        updateEdgeScale();
+        scheduleVisibleRangeCheck();
+        recordTime(LayoutMetrics.TIMER_LAYOUT, startNs);
     }
 
     /**
-     * 获取密度还不满的区域
-     *
-     * @param areaCapacity 密度
-     */
-    private int getAreaIdx(int areaCapacity) {
-        ArrayList<Integer> temp = new ArrayList<>();
-        for (int y = 0; y < mYRegularity; y++) {
-            for (int x = 0; x < mXRegularity; x++) {
-                if (mAreaDensity[x][y] < areaCapacity) {
-                    temp.add(y * mXRegularity + (x + 1)); //栗子：第13个 = 3 * 4 + (0 + 1)
-                }
-            }
-        }
-        int num;
-        //如果是向前添加布局,从最后一个位置开始取
-        if (mLayoutOnEnd) {
-            //return temp.get(mRdm.nextInt(temp.size() - 1)) - 1; 是否有序
-            num = mStartFree;
-        } else {
-            num = temp.size() - 1 - mEndFree;
-        }
-        if (temp.size() > num && num >= 0) {
-            return temp.get(num) - 1;
+     * 保证批量计算位置时复用的数组的容量
+     */
+    private void ensurePlaceCapacity(int count) {
+        if (mPlaceCells.length < count) {
+            int capacity = Math.max(count, mPlaceCells.length * 2);
+            mPlaceSizes = new int[capacity * 2];
+            mPlaceRects = new int[capacity * 4];
+            mPlaceCells = new int[capacity];
         }
-        return -1;
     }
 
     /**
-     * 扩展二维数组（Y方向扩展）
+     * 交给位置计算引擎为mPlaceSizes中的前count个item确定位置，结果在mPlaceRects、mPlaceCells中，已转换为布局坐标。
+     * 区域不足时在这次布局中直接扩展区域并继续计算，直到全部放下或者引擎不再扩展，
+     * 每个item占用区域个数不固定的引擎只能估算需要的区域，可能需要扩展多次
      *
-     * @param array  需要扩展的array
-     * @param extend Y方向扩展的大小
-     * @return 扩展后的二维数组
-     */
-    private int[][] extendsArray(int[][] array, int extend, boolean addEnd) {
-        if (extend <= 0) {
-            return array;
-        }
-        int[][] arr = new int[array.length][array[0].length + extend];
-        for (int i = 0; i < array.length; i++) {
-            if (addEnd) {
-                System.arraycopy(array[i], 0, arr[i], 0, array[i].length);  //数组拷贝
+     * @return 成功确定位置的个数
+     */
+    private int placeItems(int count, int width, int height) {
+        if (count == 0) {
+            return 0;
+        }
+        int placed = placeBatch(0, count, width, height);
+        while (placed < count) {
+            int oldColumns = mYRegularity;
+            int columns;
+            synchronized (mEngine) {
+                columns = mEngine.ensureCapacity(mItemCount, mLayoutOnEnd);
+            }
+            if (columns == oldColumns) {
+                break;
+            }
+            // 内容区域按新的区域个数增长，向前添加时和onLayout一样只移动坐标原点
+            mYRegularity = columns;
+            int maxExtent = getOrientation() == VERTICAL ? maxItemHeight() : maxItemWidth();
+            int delta = contentExtent(columns, maxExtent) - contentExtent(oldColumns, maxExtent);
+            if (getOrientation() == VERTICAL) {
+                height += delta;
+            } else {
+                width += delta;
+            }
+            if (!mLayoutOnEnd) {
+                mOriginOffset += delta;
+                mLastH += delta;
+                synchronized (mEngine) {
+                    if (getOrientation() == VERTICAL) {
+                        mEngine.offset(0, delta);
+                    } else {
+                        mEngine.offset(delta, 0);
+                    }
+                }
+            }
+            // 自身的尺寸在下次测量时跟上，这里放下的item不需要再等一次布局
+            requestLayout();
+            placed += placeBatch(placed, count - placed, width, height);
+        }
+        return placed;
+    }
+
+    /**
+     * 为mPlaceSizes中从offset开始的count个item确定位置，结果写在mPlaceRects、mPlaceCells的同样下标
+     *
+     * @return 成功确定位置的个数
+     */
+    private int placeBatch(int offset, int count, int width, int height) {
+        int[] sizes = mPlaceSizes;
+        int[] rects = mPlaceRects;
+        int[] cells = mPlaceCells;
+        if (offset > 0) {
+            // 引擎从下标0开始读写，扩展区域后的剩余部分用临时数组
+            sizes = Arrays.copyOfRange(mPlaceSizes, offset * 2, (offset + count) * 2);
+            rects = new int[count * 4];
+            cells = new int[count];
+        }
+        int placed;
+        long scanned;
+        synchronized (mEngine) {
+            scanned = mMetrics != null ? mEngine.getScannedCellCount() : 0;
+            placed = mEngine.place(sizes, count, getOrientation(), width, height, mLayoutOnEnd, rects, cells);
+            scanned = mMetrics != null ? mEngine.getScannedCellCount() - scanned : 0;
+        }
+        if (mMetrics != null) {
+            recordCount(LayoutMetrics.COUNTER_CELLS_SCANNED, scanned);
+            recordCount(LayoutMetrics.COUNTER_ITEMS_PLACED, placed);
+        }
+        if (offset > 0) {
+            System.arraycopy(rects, 0, mPlaceRects, offset * 4, placed * 4);
+            System.arraycopy(cells, 0, mPlaceCells, offset, placed);
+        }
+        for (int i = offset; i < offset + placed; i++) {
+            toLayoutRect(mPlaceRects, i * 4);
+        }
+        return placed;
+    }
+
+    /**
+     * 异步计算结束后还有item因为区域不足没有放下时按布局方向扩展区域，区域个数变化后重新布局
+     */
+    private void growForPending() {
+        int columns;
+        synchronized (mEngine) {
+            columns = mEngine.ensureCapacity(mItemCount, mLayoutOnEnd);
+        }
+        if (columns != mYRegularity) {
+            mYRegularity = columns;
+            requestLayout();
+        }
+    }
+
+    /**
+     * 测量时使用的item最大宽高，决定内容区域的长度
+     */
+    private int maxItemWidth() {
+        return hasFixedItemSize() ? mFixedItemWidth : mMaxItemWidth;
+    }
+
+    private int maxItemHeight() {
+        return hasFixedItemSize() ? mFixedItemHeight : mMaxItemHeight;
+    }
+
+    /**
+     * 把计算引擎输出的位置(相对于内容区域左上角)转换为布局坐标：加上padding，主轴方向减去头部增长的长度
+     */
+    private void toLayoutRect(int[] rect, int base) {
+        int dx = getPaddingLeft();
+        int dy = getPaddingTop();
+        if (getOrientation() == VERTICAL) {
+            dy -= mOriginOffset;
+        } else {
+            dx -= mOriginOffset;
+        }
+        rect[base] += dx;
+        rect[base + 1] += dy;
+        rect[base + 2] += dx;
+        rect[base + 3] += dy;
+    }
+
+    /**
+     * 内容起点的坐标，向前添加过item时为负数
+     */
+    @Override
+    protected int getScrollStart() {
+        return -mOriginOffset;
+    }
+
+    //-----------------------------------虚拟化相关-------------------------------------------------
+
+    /**
+     * 确定新item的尺寸。固定尺寸时不测量；LayoutParams宽高确定时复用相同尺寸和MeasureSpec的测量结果；
+     * 虚拟化模式下adapter能直接提供尺寸时不创建View，否则只测量足够铺满可见区域和预取范围的item，
+     * 绑定后立即放回回收集合，其余的先按已测量的最大尺寸占位，挂载时再测量
+     */
+    private void measureItems(int widthMeasureSpec, int heightMeasureSpec) {
+        if (null == mAdapter) {
+            return;
+        }
+        boolean adapterSizes = mVirtualized && mAdapter.hasItemSizes();
+        long measureBudget = mVirtualized ? initialMeasureArea(widthMeasureSpec, heightMeasureSpec) : Long.MAX_VALUE;
+        long measuredArea = 0;
+        for (int i = 0; i < mPendingCount; i++) {
+            int position = mPendingPositions[i];
+            if (mItemSizes[position * 2] >= 0) {
+                continue;
+            }
+            int w, h;
+            if (hasFixedItemSize()) {
+                w = mFixedItemWidth;
+                h = mFixedItemHeight;
+            } else if (isLiteItem(position)) {
+                bindLiteItem(position);
+                w = mLiteItem.width;
+                h = mLiteItem.height;
+            } else if (adapterSizes) {
+                mAdapter.getItemSize(position, mTmpSize);
+                w = mTmpSize[0];
+                h = mTmpSize[1];
+            } else if (measuredArea >= measureBudget && mMaxItemWidth > 0 && mMaxItemHeight > 0) {
+                // 不会马上显示的item按最大尺寸占位，挂载时在占位区域内测量
+                w = mMaxItemWidth;
+                h = mMaxItemHeight;
+                mSizeEstimated[position] = true;
+            } else {
+                View item = mVirtualized ? obtainView(position) : getItemView(position);
+                if (item.getVisibility() == View.GONE) {
+                    continue;
+                }
+                ViewGroup.LayoutParams params = item.getLayoutParams();
+                int cacheIdx = params.width >= 0 && params.height >= 0
+                        ? mMeasureCache.indexOf(params.width, params.height, widthMeasureSpec, heightMeasureSpec) : -1;
+                if (cacheIdx >= 0) {
+                    w = mMeasureCache.getMeasuredWidth(cacheIdx);
+                    h = mMeasureCache.getMeasuredHeight(cacheIdx);
+                } else {
+                    measureChild(item, widthMeasureSpec, heightMeasureSpec);
+                    // 挂载着的View布局时尺寸没变就不需要再测量
+                    ((LayoutParams) params).mMeasured = !mVirtualized;
+                    w = item.getMeasuredWidth();
+                    h = item.getMeasuredHeight();
+                    if (params.width >= 0 && params.height >= 0) {
+                        mMeasureCache.put(params.width, params.height, widthMeasureSpec, heightMeasureSpec, w, h);
+                    }
+                }
+                if (mVirtualized) {
+                    pushRecycler(item);
+                }
+                measuredArea += (long) w * h;
+            }
+            mItemSizes[position * 2] = w;
+            mItemSizes[position * 2 + 1] = h;
+            mMaxItemWidth = Math.max(mMaxItemWidth, w);
+            mMaxItemHeight = Math.max(mMaxItemHeight, h);
+        }
+    }
+
+    /**
+     * 第一次测量时需要实际测量的item面积：可见区域加上前后预取范围
+     */
+    private long initialMeasureArea(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean vertical = getOrientation() == VERTICAL;
+        int crossExtent = MeasureSpec.getSize(vertical ? widthMeasureSpec : heightMeasureSpec);
+        int viewport = 0;
+        if (getParent() instanceof ViewGroup) {
+            viewport = vertical ? getParentHeight() : getParentWidth();
+        }
+        if (viewport <= 0) {
+            viewport = MeasureSpec.getSize(vertical ? heightMeasureSpec : widthMeasureSpec);
+        }
+        return (long) crossExtent * (viewport + mViewportBuffer * 2);
+    }
+
+    /**
+     * 测量尺寸为估计值的item：在占位区域内测量，实际尺寸更小时缩小区域，起点不变所以排序数组不受影响
+     */
+    private void measureEstimatedItem(View child, int position) {
+        mSizeEstimated[position] = false;
+        int base = position * 4;
+        int width = mItemRects[base + 2] - mItemRects[base];
+        int height = mItemRects[base + 3] - mItemRects[base + 1];
+        child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.AT_MOST),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.AT_MOST));
+        ((LayoutParams) child.getLayoutParams()).mMeasured = true;
+        int w = Math.min(width, child.getMeasuredWidth());
+        int h = Math.min(height, child.getMeasuredHeight());
+        mItemSizes[position * 2] = w;
+        mItemSizes[position * 2 + 1] = h;
+        if (w == width && h == height) {
+            return;
+        }
+        mItemRects[base + 2] = mItemRects[base] + w;
+        mItemRects[base + 3] = mItemRects[base + 1] + h;
+        if (mItemEntries[position] >= 0) {
+            mItemHash.remove(mItemEntries[position]);
+            mItemEntries[position] = mItemHash.add(position, mItemRects[base], mItemRects[base + 1],
+                    mItemRects[base + 2], mItemRects[base + 3]);
+        }
+    }
+
+    /**
+     * 已经确定位置的子View只有内容变化(请求了重新布局)时才按位置的大小重新测量
+     */
+    private void remeasureChangedChildren() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            LayoutParams params = (LayoutParams) child.getLayoutParams();
+            if (params.mCell >= 0 && child.isLayoutRequested()) {
+                child.measure(MeasureSpec.makeMeasureSpec(params.mRight - params.mLeft, MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(params.mBottom - params.mTop, MeasureSpec.EXACTLY));
+            }
+        }
+    }
+
+    /**
+     * 保证item相关数组的容量
+     */
+    private void ensureItemCapacity(int count) {
+        if (mItemCells.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, mItemCells.length * 2);
+        mItemSizes = Arrays.copyOf(mItemSizes, capacity * 2);
+        mSizeEstimated = Arrays.copyOf(mSizeEstimated, capacity);
+        mItemRects = Arrays.copyOf(mItemRects, capacity * 4);
+        mItemCells = Arrays.copyOf(mItemCells, capacity);
+        mSortedPositions = Arrays.copyOf(mSortedPositions, capacity);
+        mItemEntries = Arrays.copyOf(mItemEntries, capacity);
+        mItemIds = Arrays.copyOf(mItemIds, capacity);
+    }
+
+    /**
+     * 记录item的位置，并按主轴起点二分插入排序数组。一批item用{@link #recordItemRect(int, int[])}和
+     * {@link #mergeSortedPositions(int[], int)}，向前添加时不会每个item都移动整个排序数组
+     */
+    private void addItemRect(int position, int[] rect) {
+        recordItemRect(position, rect);
+        mPlacedCount = SortedPositions.insert(mSortedPositions, mPlacedCount, position, mItemRects, startField());
+    }
+
+    /**
+     * 只记录item的位置，还没有加入排序数组
+     */
+    private void recordItemRect(int position, int[] rect) {
+        System.arraycopy(rect, 0, mItemRects, position * 4, 4);
+        mItemEntries[position] = mItemHash.add(position, rect[0], rect[1], rect[2], rect[3]);
+        mMaxItemWidth = Math.max(mMaxItemWidth, rect[2] - rect[0]);
+        mMaxItemHeight = Math.max(mMaxItemHeight, rect[3] - rect[1]);
+    }
+
+    /**
+     * 把已经记录位置的前count个position一次合并进排序数组
+     */
+    private void mergeSortedPositions(int[] positions, int count) {
+        mMergeKeys = SortedPositions.merge(mSortedPositions, mPlacedCount, positions, count, mItemRects, startField(), mMergeKeys);
+        mPlacedCount += count;
+    }
+
+    /**
+     * 主轴起点在每条位置记录中的下标
+     */
+    private int startField() {
+        return getOrientation() == VERTICAL ? 1 : 0;
+    }
+
+    /**
+     * item在主轴方向上的起点
+     */
+    private int itemStart(int position) {
+        return mItemRects[position * 4 + (getOrientation() == VERTICAL ? 1 : 0)];
+    }
+
+    /**
+     * item在主轴方向上的终点
+     */
+    private int itemEnd(int position) {
+        return mItemRects[position * 4 + (getOrientation() == VERTICAL ? 3 : 2)];
+    }
+
+    /**
+     * 二分查找第一个主轴起点不小于start的排序下标
+     */
+    private int findFirstSortedIndex(int start) {
+        return SortedPositions.findFirst(mSortedPositions, mPlacedCount, start, mItemRects, startField());
+    }
+
+    /**
+     * 按当前滚动位置挂载可见区域(加缓冲)内的View，回收可见区域外的View
+     */
+    private void fillViewport() {
+        if (!mVirtualized || null == mAdapter || !mHasLayout || getParent() == null) {
+            return;
+        }
+        int windowStart, windowEnd;
+        if (getOrientation() == VERTICAL) {
+            windowStart = getScrollY();
+            windowEnd = windowStart + getParentHeight();
+        } else {
+            windowStart = getScrollX();
+            windowEnd = windowStart + getParentWidth();
+        }
+        windowStart -= mViewportBuffer;
+        windowEnd += mViewportBuffer;
+
+        // 回收离开可见区域的View
+        boolean changed = false;
+        for (int i = mActiveViews.size() - 1; i >= 0; i--) {
+            int position = mActiveViews.keyAt(i);
+            if (position >= mItemCount || mItemCells[position] < 0 || itemEnd(position) <= windowStart || itemStart(position) >= windowEnd) {
+                View view = mActiveViews.valueAt(i);
+                mActiveViews.removeAt(i);
+                removeViewInLayout(view);
+                pushRecycler(view);
+                changed = true;
+            }
+        }
+
+        // 挂载进入可见区域的View，起点早于窗口的item最多早一个item的长度
+        int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+        for (int i = findFirstSortedIndex(windowStart - maxExtent); i < mPlacedCount; i++) {
+            int position = mSortedPositions[i];
+            if (itemStart(position) >= windowEnd) {
+                break;
+            }
+            if (itemEnd(position) > windowStart && mActiveViews.get(position) == null && !isLiteItem(position)) {
+                attachItem(position);
+                changed = true;
+            }
+        }
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 绑定并挂载position对应的View，按已确定的位置布局
+     */
+    private void attachItem(int position) {
+        // 优先使用预取好的View
+        View child = mPrefetchViews.get(position);
+        if (child != null) {
+            mPrefetchViews.remove(position);
+        } else {
+            child = obtainView(position);
+        }
+        attachChild(child, -1);
+        layoutAtItemRect(child, position);
+        mActiveViews.put(position, child);
+        recordCount(LayoutMetrics.COUNTER_VIEWS_ATTACHED, 1);
+    }
+
+    /**
+     * 按position已确定的位置测量并布局View
+     */
+    private void layoutAtItemRect(View child, int position) {
+        if (mSizeEstimated[position]) {
+            measureEstimatedItem(child, position);
+        }
+        LayoutParams params = (LayoutParams) child.getLayoutParams();
+        int base = position * 4;
+        params.mCell = mItemCells[position];
+        params.mLeft = mItemRects[base];
+        params.mTop = mItemRects[base + 1];
+        params.mRight = mItemRects[base + 2];
+        params.mBottom = mItemRects[base + 3];
+        layoutAtParams(child, params);
+    }
+
+    /**
+     * 按LayoutParams中记录的位置布局View。测量的尺寸和位置一致并且测量后内容没有变化时直接布局，
+     * 只有估算的尺寸被截断或者内容变化时才按位置的大小重新测量
+     */
+    private void layoutAtParams(View child, LayoutParams params) {
+        int width = params.mRight - params.mLeft;
+        int height = params.mBottom - params.mTop;
+        if (child.getMeasuredWidth() != width || child.getMeasuredHeight() != height
+                || (!params.mMeasured && child.isLayoutRequested())) {
+            child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        }
+        params.mMeasured = false;
+        child.layout(params.mLeft, params.mTop, params.mRight, params.mBottom);
+    }
+
+    //-----------------------------------位置查询相关-------------------------------------------------
+
+    /**
+     * 上一次通知adapter的可见范围，没有时为-1
+     */
+    private int mVisibleMin = -1;
+    private int mVisibleMax = -1;
+    private boolean mVisibleRangeScheduled;
+    private final Runnable mVisibleRangeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mVisibleRangeScheduled = false;
+            dispatchVisibleRange();
+        }
+    };
+
+    /**
+     * 上一次滚动回调时可见的position，按position排序
+     */
+    private int[] mVisiblePositions = new int[0];
+    private int mVisibleCount;
+    /**
+     * 本次滚动回调时可见的position，和mVisiblePositions交替使用
+     */
+    private int[] mFrameVisible = new int[0];
+
+    /**
+     * 取出position已确定的位置，坐标和子View的布局坐标一致
+     *
+     * @return position还没有确定位置时返回false
+     */
+    public boolean getItemRect(int position, Rect outRect) {
+        if (position < 0 || position >= mItemCount || mItemCells[position] < 0) {
+            return false;
+        }
+        int base = position * 4;
+        outRect.set(mItemRects[base], mItemRects[base + 1], mItemRects[base + 2], mItemRects[base + 3]);
+        return true;
+    }
+
+    /**
+     * 按已确定的位置计算滚动距离，不需要item已经挂载，定位后item在可见区域的起点
+     */
+    @Override
+    protected int getItemScrollPosition(int position) {
+        if (position < 0 || position >= mItemCount || mItemCells[position] < 0 || getParent() == null) {
+            return Integer.MIN_VALUE;
+        }
+        int maxScroll;
+        if (getOrientation() == VERTICAL) {
+            maxScroll = getScrollStart() + getHeight() - getParentHeight();
+        } else {
+            maxScroll = getScrollStart() + getWidth() - getParentWidth();
+        }
+        return Math.max(getScrollStart(), Math.min(itemStart(position), maxScroll));
+    }
+
+    /**
+     * @return 可见区域内沿主轴方向第一个出现的item，没有时返回-1
+     */
+    public int findFirstVisiblePosition() {
+        if (mPlacedCount == 0 || getParent() == null) {
+            return -1;
+        }
+        int windowStart = getWindowStart();
+        int windowEnd = windowStart + getWindowLength();
+        int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+        // 起点早于窗口的item最多早一个item的长度
+        for (int i = findFirstSortedIndex(windowStart - maxExtent); i < mPlacedCount; i++) {
+            int position = mSortedPositions[i];
+            if (itemStart(position) >= windowEnd) {
+                break;
+            }
+            if (itemEnd(position) > windowStart) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 可见区域内沿主轴方向最后一个出现的item，没有时返回-1
+     */
+    public int findLastVisiblePosition() {
+        if (mPlacedCount == 0 || getParent() == null) {
+            return -1;
+        }
+        int windowStart = getWindowStart();
+        int windowEnd = windowStart + getWindowLength();
+        int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+        for (int i = findFirstSortedIndex(windowEnd) - 1; i >= 0; i--) {
+            int position = mSortedPositions[i];
+            if (itemStart(position) + maxExtent <= windowStart) {
+                break;
+            }
+            if (itemEnd(position) > windowStart) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找位置和矩形重叠的item，坐标和子View的布局坐标一致
+     *
+     * @param outPositions 输出position，最多输出outPositions.length个，顺序不确定
+     * @return 重叠的item个数，可能大于outPositions.length
+     */
+    public int findPositionsInRect(int left, int top, int right, int bottom, int[] outPositions) {
+        return mItemHash.query(left, top, right, bottom, outPositions);
+    }
+
+    /**
+     * 按可见区域计算这一帧的第一个、最后一个可见item，并和上一帧的可见item比较得出进入和离开的item。
+     * 只遍历可见区域附近的排序下标，耗时和可见item个数有关，和item总数无关
+     */
+    @Override
+    protected void onFillScrollFrame(ScrollFrame frame) {
+        int count = 0;
+        int first = -1;
+        int last = -1;
+        if (mPlacedCount > 0 && getParent() != null) {
+            int windowStart = getWindowStart();
+            int windowEnd = windowStart + getWindowLength();
+            int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+            for (int i = findFirstSortedIndex(windowStart - maxExtent); i < mPlacedCount; i++) {
+                int position = mSortedPositions[i];
+                if (itemStart(position) >= windowEnd) {
+                    break;
+                }
+                if (itemEnd(position) > windowStart) {
+                    if (first < 0) {
+                        first = position;
+                    }
+                    last = position;
+                    if (count == mFrameVisible.length) {
+                        mFrameVisible = Arrays.copyOf(mFrameVisible, Math.max(16, count * 2));
+                    }
+                    mFrameVisible[count++] = position;
+                }
+            }
+        }
+        frame.setVisibleRange(first, last);
+        // 两边都按position排序后合并比较
+        Arrays.sort(mFrameVisible, 0, count);
+        int i = 0;
+        int j = 0;
+        while (i < mVisibleCount || j < count) {
+            if (j >= count || (i < mVisibleCount && mVisiblePositions[i] < mFrameVisible[j])) {
+                frame.addExited(mVisiblePositions[i++]);
+            } else if (i >= mVisibleCount || mFrameVisible[j] < mVisiblePositions[i]) {
+                frame.addEntered(mFrameVisible[j++]);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        int[] visible = mVisiblePositions;
+        mVisiblePositions = mFrameVisible;
+        mVisibleCount = count;
+        mFrameVisible = visible;
+    }
+
+    /**
+     * @return 可见区域在主轴方向上的起点
+     */
+    private int getWindowStart() {
+        return getOrientation() == VERTICAL ? getScrollY() : getScrollX();
+    }
+
+    /**
+     * @return 可见区域在主轴方向上的长度
+     */
+    private int getWindowLength() {
+        return getOrientation() == VERTICAL ? getParentHeight() : getParentWidth();
+    }
+
+    /**
+     * 在当前帧处理完后检查可见范围，同一帧内只安排一次
+     */
+    private void scheduleVisibleRangeCheck() {
+        if (mAdapter != null && !mVisibleRangeScheduled) {
+            mVisibleRangeScheduled = true;
+            post(mVisibleRangeRunnable);
+        }
+    }
+
+    /**
+     * 计算可见item的最小和最大position，变化时通知adapter
+     */
+    private void dispatchVisibleRange() {
+        if (null == mAdapter || mPlacedCount == 0 || getParent() == null) {
+            return;
+        }
+        int windowStart = getWindowStart();
+        int windowEnd = windowStart + getWindowLength();
+        int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+        int min = -1;
+        int max = -1;
+        for (int i = findFirstSortedIndex(windowStart - maxExtent); i < mPlacedCount; i++) {
+            int position = mSortedPositions[i];
+            if (itemStart(position) >= windowEnd) {
+                break;
+            }
+            if (itemEnd(position) > windowStart) {
+                min = min < 0 ? position : Math.min(min, position);
+                max = Math.max(max, position);
+            }
+        }
+        if (min >= 0 && (min != mVisibleMin || max != mVisibleMax)) {
+            mVisibleMin = min;
+            mVisibleMax = max;
+            mAdapter.onVisibleRangeChanged(min, max);
+        }
+    }
+
+    //-----------------------------------异步布局相关-------------------------------------------------
+
+    /**
+     * 每帧应用异步计算结果的时间预算
+     */
+    private static final long ASYNC_FRAME_BUDGET_NS = 4000000L;
+
+    /**
+     * 是否在工作线程中计算位置
+     */
+    private boolean mAsyncLayout;
+    /**
+     * 正在进行的异步计算，没有时为null。只在主线程修改，awaitPlacement可以在其他线程读取
+     */
+    private volatile AsyncPlacement mAsyncPlacement;
+    /**
+     * 已经应用的异步计算结果个数
+     */
+    private int mAsyncApplied;
+    private OnPlacementCompleteListener mOnPlacementCompleteListener;
+    private final Choreographer.FrameCallback mAsyncFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyAsyncPlacement();
+        }
+    };
+
+    /**
+     * 设置是否在工作线程中计算位置。需要adapter的{@link RandomAdapter#hasItemSizes()}返回true，
+     * 只对向后添加生效，计算结果按帧分批显示，已经确定位置的区域立即可以显示
+     */
+    public void setAsyncLayout(boolean asyncLayout) {
+        if (mAsyncLayout != asyncLayout) {
+            cancelAsyncPlacement();
+            mAsyncLayout = asyncLayout;
+            requestLayout();
+        }
+    }
+
+    public boolean isAsyncLayout() {
+        return mAsyncLayout;
+    }
+
+    /**
+     * 所有item的位置是否都已经确定并显示
+     */
+    public boolean isPlacementComplete() {
+        return mAsyncPlacement == null && mPendingCount == 0;
+    }
+
+    /**
+     * 等待工作线程计算完成，计算结果之后会在主线程按帧显示。不能在主线程调用
+     *
+     * @return 是否在超时前完成，没有正在进行的计算时直接返回true
+     */
+    public boolean awaitPlacement(long timeoutMillis) throws InterruptedException {
+        AsyncPlacement task = mAsyncPlacement;
+        return task == null || task.await(timeoutMillis);
+    }
+
+    /**
+     * 设置所有item的位置都确定并显示后的回调
+     */
+    public void setOnPlacementCompleteListener(OnPlacementCompleteListener listener) {
+        mOnPlacementCompleteListener = listener;
+    }
+
+    private boolean isAsyncLayoutActive() {
+        return mAsyncLayout && mLayoutOnEnd && mAdapter != null && mAdapter.hasItemSizes();
+    }
+
+    /**
+     * 把所有待布局的item交给工作线程计算位置
+     */
+    private void startAsyncPlacement(int crossExtent) {
+        if (mPendingCount == 0 || mYRegularity == 0) {
+            return;
+        }
+        int mainPadding = getOrientation() == VERTICAL ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        mAsyncPlacement = new AsyncPlacement(mEngine, mAdapter, Arrays.copyOf(mPendingPositions, mPendingCount),
+                getOrientation(), crossExtent, mainPadding, mYRegularity, mMaxItemWidth, mMaxItemHeight);
+        mAsyncApplied = 0;
+        mPendingCount = 0;
+        mAsyncPlacement.start();
+        Choreographer.getInstance().postFrameCallback(mAsyncFrameCallback);
+    }
+
+    /**
+     * 取消异步计算，已经计算但还没应用的结果释放区域，和还没计算的item一起放回待布局
+     */
+    private void cancelAsyncPlacement() {
+        AsyncPlacement task = mAsyncPlacement;
+        if (task == null) {
+            return;
+        }
+        mAsyncPlacement = null;
+        Choreographer.getInstance().removeFrameCallback(mAsyncFrameCallback);
+        // cancel返回后工作线程不会再计算，已计算的个数不再变化
+        task.cancel();
+        int computed = task.getComputedCount();
+        synchronized (mEngine) {
+            for (int i = mAsyncApplied; i < computed; i++) {
+                mEngine.release(task.getCell(i));
+            }
+        }
+        returnToPending(task, mAsyncApplied);
+    }
+
+    /**
+     * 把异步计算中从from开始的item放回待布局
+     */
+    private void returnToPending(AsyncPlacement task, int from) {
+        int count = task.getCount() - from;
+        if (mPendingPositions.length < mPendingCount + count) {
+            mPendingPositions = Arrays.copyOf(mPendingPositions, mPendingCount + count);
+        }
+        for (int i = from; i < task.getCount(); i++) {
+            mPendingPositions[mPendingCount++] = task.getPosition(i);
+        }
+    }
+
+    /**
+     * 在一帧的时间预算内应用异步计算的结果
+     */
+    private void applyAsyncPlacement() {
+        AsyncPlacement task = mAsyncPlacement;
+        if (task == null) {
+            return;
+        }
+        // 先读结束状态，结束后计算个数不再变化
+        boolean finished = task.isFinished();
+        int computed = task.getComputedCount();
+        if (computed > mAsyncApplied) {
+            boolean sizeChanged = task.getMaxWidth() > mMaxItemWidth || task.getMaxHeight() > mMaxItemHeight;
+            mMaxItemWidth = Math.max(mMaxItemWidth, task.getMaxWidth());
+            mMaxItemHeight = Math.max(mMaxItemHeight, task.getMaxHeight());
+            long deadline = System.nanoTime() + ASYNC_FRAME_BUDGET_NS;
+            int i = mAsyncApplied;
+            while (i < computed) {
+                int position = task.getPosition(i);
+                mItemSizes[position * 2] = task.getWidth(i);
+                mItemSizes[position * 2 + 1] = task.getHeight(i);
+                mItemCells[position] = task.getCell(i);
+                task.getRect(i, mTmpRect);
+                toLayoutRect(mTmpRect, 0);
+                addItemRect(position, mTmpRect);
+                if (!mVirtualized) {
+                    layoutAtItemRect(getItemView(position), position);
+                }
+                i++;
+                if ((i & 63) == 0 && System.nanoTime() > deadline) {
+                    break;
+                }
+            }
+            mAsyncApplied = i;
+            if (sizeChanged) {
+                // 内容区域的长度由最大尺寸决定
+                requestLayout();
+            }
+            fillViewport();
+            updateEdgeScale();
+            scheduleVisibleRangeCheck();
+            invalidate();
+        }
+        if (finished && mAsyncApplied == computed) {
+            mAsyncPlacement = null;
+            // 区域不足没有放下的item放回待布局，下次布局时继续
+            returnToPending(task, computed);
+            if (mPendingCount > 0) {
+                growForPending();
+            }
+            if (mPendingCount > 0 && computed > 0) {
+                requestLayout();
+            } else if (mOnPlacementCompleteListener != null) {
+                mOnPlacementCompleteListener.onPlacementComplete();
+            }
+        } else {
+            Choreographer.getInstance().postFrameCallback(mAsyncFrameCallback);
+        }
+    }
+
+    /**
+     * 所有item的位置都确定并显示后的回调
+     */
+    public interface OnPlacementCompleteListener {
+        void onPlacementComplete();
+    }
+
+    //-----------------------------------预取相关-------------------------------------------------
+
+    /**
+     * 最多预取的View个数
+     */
+    private static final int MAX_PREFETCH_VIEWS = 12;
+
+    /**
+     * 是否在每帧的空闲时间预取即将进入可见区域的item（虚拟化模式）
+     */
+    private boolean mPrefetchEnabled = true;
+    private boolean mPrefetchScheduled;
+    /**
+     * 已经绑定并测量好、还没有挂载的View，position -> View
+     */
+    private final SparseArray<View> mPrefetchViews = new SparseArray<>();
+    /**
+     * 最近一次滚动的方向，1为向后，-1为向前
+     */
+    private int mScrollDirection = 1;
+    /**
+     * 一帧的时长
+     */
+    private long mFrameIntervalNs = TimeUnit.SECONDS.toNanos(1) / 60;
+    /**
+     * 绑定并测量一个item的平均耗时
+     */
+    private long mAverageBindNs;
+    /**
+     * 安排预取后下一帧的开始时间，和System.nanoTime()是同一个时钟
+     */
+    private long mPrefetchFrameTimeNanos;
+    private final Choreographer.FrameCallback mPrefetchFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // 这一帧的绘制完成后再预取，截止时间是下一帧开始
+            mPrefetchFrameTimeNanos = frameTimeNanos;
+            post(mPrefetchRunnable);
+        }
+    };
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPrefetchScheduled = false;
+            prefetch(mPrefetchFrameTimeNanos + mFrameIntervalNs);
+        }
+    };
+
+    /**
+     * 设置是否在每帧的空闲时间预取即将进入可见区域的item，只在虚拟化模式下生效
+     */
+    public void setPrefetchEnabled(boolean enabled) {
+        mPrefetchEnabled = enabled;
+        if (!enabled) {
+            clearPrefetchViews();
+        }
+    }
+
+    public boolean isPrefetchEnabled() {
+        return mPrefetchEnabled;
+    }
+
+    /**
+     * 在下一帧处理完后预取，同一帧内只安排一次
+     */
+    private void schedulePrefetch() {
+        if (mVirtualized && mPrefetchEnabled && !mPrefetchScheduled) {
+            mPrefetchScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mPrefetchFrameCallback);
+        }
+    }
+
+    /**
+     * 按滚动方向和Scroller的终点预测即将进入可见区域的item，在下一帧开始前的剩余时间内绑定并测量，
+     * 离目标区域最近的先预取，预计超出这一帧的时间时停止
+     *
+     * @param deadline 截止时间，System.nanoTime()的时钟
+     */
+    void prefetch(long deadline) {
+        if (!mVirtualized || !mPrefetchEnabled || null == mAdapter || !mHasLayout || getParent() == null) {
+            return;
+        }
+        int scroll, viewport;
+        if (getOrientation() == VERTICAL) {
+            scroll = getScrollY();
+            viewport = getParentHeight();
+        } else {
+            scroll = getScrollX();
+            viewport = getParentWidth();
+        }
+        // 惯性滚动时预取到终点，拖动时预取一屏
+        int target = isFlinging() ? getFlingFinalPosition() : scroll + mScrollDirection * viewport;
+        boolean forward = target > scroll || (target == scroll && mScrollDirection > 0);
+        int rangeStart, rangeEnd;
+        if (forward) {
+            rangeStart = scroll + viewport + mViewportBuffer;
+            rangeEnd = Math.max(rangeStart, target + viewport + mViewportBuffer);
+        } else {
+            rangeEnd = scroll - mViewportBuffer;
+            rangeStart = Math.min(rangeEnd, target - mViewportBuffer);
+        }
+
+        // 回收不在目标区域内的预取View
+        for (int i = mPrefetchViews.size() - 1; i >= 0; i--) {
+            int position = mPrefetchViews.keyAt(i);
+            if (itemEnd(position) <= rangeStart || itemStart(position) >= rangeEnd) {
+                View view = mPrefetchViews.valueAt(i);
+                mPrefetchViews.removeAt(i);
+                pushRecycler(view);
+            }
+        }
+
+        int maxExtent = getOrientation() == VERTICAL ? mMaxItemHeight : mMaxItemWidth;
+        if (forward) {
+            for (int i = findFirstSortedIndex(rangeStart); i < mPlacedCount; i++) {
+                int position = mSortedPositions[i];
+                if (itemStart(position) >= rangeEnd || !prefetchItem(position, deadline)) {
+                    break;
+                }
+            }
+        } else {
+            for (int i = findFirstSortedIndex(rangeEnd) - 1; i >= 0; i--) {
+                int position = mSortedPositions[i];
+                if (itemStart(position) + maxExtent <= rangeStart) {
+                    break;
+                }
+                if (itemEnd(position) > rangeStart && !prefetchItem(position, deadline)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 绑定并测量position对应的View放入预取集合
+     *
+     * @return 是否还能继续预取
+     */
+    private boolean prefetchItem(int position, long deadline) {
+        if (mActiveViews.get(position) != null || mPrefetchViews.get(position) != null || isLiteItem(position)) {
+            return true;
+        }
+        if (mPrefetchViews.size() >= MAX_PREFETCH_VIEWS) {
+            return false;
+        }
+        long start = System.nanoTime();
+        if (start + mAverageBindNs > deadline) {
+            return false;
+        }
+        View view = obtainView(position);
+        layoutAtItemRect(view, position);
+        mPrefetchViews.put(position, view);
+        long cost = System.nanoTime() - start;
+        mAverageBindNs = mAverageBindNs == 0 ? cost : (mAverageBindNs * 3 + cost) / 4;
+        return true;
+    }
+
+    /**
+     * 丢弃所有预取的View，数据变化后预取的内容可能已经过期
+     */
+    private void clearPrefetchViews() {
+        for (int i = 0; i < mPrefetchViews.size(); i++) {
+            pushRecycler(mPrefetchViews.valueAt(i));
+        }
+        mPrefetchViews.clear();
+    }
+
+    //-----------------------------------轻量模式相关-------------------------------------------------
+
+    /**
+     * 复用的轻量item绘制数据
+     */
+    private final LiteItem mLiteItem = new LiteItem();
+    private final Paint mLitePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLiteTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mLiteRect = new RectF();
+    private final Rect mLiteClip = new Rect();
+
+    /**
+     * position是否是由自身绘制、不创建View的轻量item
+     */
+    private boolean isLiteItem(int position) {
+        return mAdapter != null && mAdapter.isLiteMode() && !mAdapter.isInteractive(position);
+    }
+
+    private void bindLiteItem(int position) {
+        mLiteItem.reset();
+        mAdapter.getLiteItem(position, mLiteItem);
+    }
+
+    /**
+     * 先按已确定的位置一次画完可见区域内的轻量item，再画子View
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mAdapter != null && mAdapter.isLiteMode() && mPlacedCount > 0 && canvas.getClipBounds(mLiteClip)) {
+            drawLiteItems(canvas);
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    private void drawLiteItems(Canvas canvas) {
+        int clipStart, clipEnd, maxExtent, viewStart, viewEnd;
+        if (getOrientation() == VERTICAL) {
+            clipStart = mLiteClip.top;
+            clipEnd = mLiteClip.bottom;
+            maxExtent = mMaxItemHeight;
+            viewStart = getScrollY();
+            viewEnd = getParent() != null ? viewStart + getParentHeight() - getTop() : clipEnd;
+        } else {
+            clipStart = mLiteClip.left;
+            clipEnd = mLiteClip.right;
+            maxExtent = mMaxItemWidth;
+            viewStart = getScrollX();
+            viewEnd = getParent() != null ? viewStart + getParentWidth() - getLeft() : clipEnd;
+        }
+        mLiteTextPaint.setTextAlign(Paint.Align.CENTER);
+        for (int i = findFirstSortedIndex(clipStart - maxExtent); i < mPlacedCount; i++) {
+            int position = mSortedPositions[i];
+            int start = itemStart(position);
+            if (start >= clipEnd) {
+                break;
+            }
+            int end = itemEnd(position);
+            if (end <= clipStart || !isLiteItem(position)) {
+                continue;
+            }
+            bindLiteItem(position);
+            int base = position * 4;
+            float scale = edgeScale(start, end, viewStart, viewEnd);
+            float centerX = (mItemRects[base] + mItemRects[base + 2]) / 2f;
+            float centerY = (mItemRects[base + 1] + mItemRects[base + 3]) / 2f;
+            float halfW = (mItemRects[base + 2] - mItemRects[base]) * scale / 2f;
+            float halfH = (mItemRects[base + 3] - mItemRects[base + 1]) * scale / 2f;
+            mLiteRect.set(centerX - halfW, centerY - halfH, centerX + halfW, centerY + halfH);
+            mLitePaint.setColor(mLiteItem.color);
+            canvas.drawOval(mLiteRect, mLitePaint);
+            if (mLiteItem.label != null) {
+                mLiteTextPaint.setColor(mLiteItem.textColor);
+                mLiteTextPaint.setTextSize((mLiteItem.textSize > 0 ? mLiteItem.textSize : halfH * 0.5f / scale) * scale);
+                float baseline = centerY - (mLiteTextPaint.ascent() + mLiteTextPaint.descent()) / 2f;
+                canvas.drawText(mLiteItem.label, centerX, baseline, mLiteTextPaint);
+            }
+        }
+    }
+
+    //-----------------------------------边缘缩放相关-------------------------------------------------
+
+    /**
+     * 缩放跨过可见区域边缘的item，超出的越多缩得越小。
+     * 位置直接从已确定的位置和滚动距离计算，只处理边缘区域内的item，离开边缘区域的item恢复原大小，不产生任何对象
+     */
+    private void updateEdgeScale() {
+        if (mPlacedCount == 0 || getParent() == null) {
+            return;
+        }
+        int viewStart, viewEnd, maxExtent;
+        if (getOrientation() == VERTICAL) {
+            viewStart = getScrollY();
+            viewEnd = viewStart + getParentHeight() - getTop();
+            maxExtent = mMaxItemHeight;
+        } else {
+            viewStart = getScrollX();
+            viewEnd = viewStart + getParentWidth() - getLeft();
+            maxExtent = mMaxItemWidth;
+        }
+        mBandCount = 0;
+        if (mEdgeMinScale < 1f) {
+            scaleEdgeBand(viewStart, viewStart, viewEnd, maxExtent, 0);
+            // 按position排序后二分查找，两条边缘都跨过的item只处理一次
+            Arrays.sort(mBandPositions, 0, mBandCount);
+            scaleEdgeBand(viewEnd, viewStart, viewEnd, maxExtent, mBandCount);
+            Arrays.sort(mBandPositions, 0, mBandCount);
+        }
+        // 离开边缘区域的item恢复原大小
+        for (int i = 0; i < mScaledCount; i++) {
+            int position = mScaledPositions[i];
+            if (!containsPosition(mBandPositions, mBandCount, position)) {
+                View view = getItemView(position);
+                if (view != null) {
+                    view.setScaleX(1f);
+                    view.setScaleY(1f);
+                }
+            }
+        }
+        int[] scaled = mScaledPositions;
+        mScaledPositions = mBandPositions;
+        mScaledCount = mBandCount;
+        mBandPositions = scaled;
+    }
+
+    /**
+     * 缩放跨过edge的item，并记录到mBandPositions
+     *
+     * @param sortedCount mBandPositions中已经排好序的个数，这些item不再处理
+     */
+    private void scaleEdgeBand(int edge, int viewStart, int viewEnd, int maxExtent, int sortedCount) {
+        for (int i = findFirstSortedIndex(edge - maxExtent); i < mPlacedCount; i++) {
+            int position = mSortedPositions[i];
+            int start = itemStart(position);
+            if (start >= edge) {
+                break;
+            }
+            int end = itemEnd(position);
+            if (end <= edge || containsPosition(mBandPositions, sortedCount, position)) {
+                continue;
+            }
+            View view = getItemView(position);
+            if (view == null) {
+                continue;
+            }
+            float scale = edgeScale(start, end, viewStart, viewEnd);
+            view.setScaleX(scale);
+            view.setScaleY(scale);
+            if (mBandCount == mBandPositions.length) {
+                mBandPositions = Arrays.copyOf(mBandPositions, Math.max(8, mBandCount * 2));
+            }
+            mBandPositions[mBandCount++] = position;
+        }
+    }
+
+    /**
+     * 按超出可见区域的比例计算缩放，超出的越多缩得越小
+     */
+    private float edgeScale(int start, int end, int viewStart, int viewEnd) {
+        int out = Math.max(viewStart - start, end - viewEnd);
+        if (out <= 0 || mEdgeMinScale >= 1f) {
+            return 1f;
+        }
+        float fraction = Math.min(1f, (float) out / (end - start));
+        float scale = 1 - (mEdgeScaleInterpolator != null ? mEdgeScaleInterpolator.getInterpolation(fraction) : fraction);
+        return Math.max(scale, mEdgeMinScale);
+    }
+
+    /**
+     * @param sorted 前count个按从小到大排序
+     */
+    private static boolean containsPosition(int[] sorted, int count, int position) {
+        return Arrays.binarySearch(sorted, 0, count, position) >= 0;
+    }
+
+    /**
+     * @return position对应的已挂载的View，没有挂载时返回null
+     */
+    private View getItemView(int position) {
+        return mActiveViews.get(position);
+    }
+
+    //-----------------------------------数据变化相关-------------------------------------------------
+
+    private static final int OP_INSERT = 0;
+    private static final int OP_REMOVE = 1;
+    private static final int OP_MOVE = 2;
+
+    /**
+     * 在原来的View上局部更新时，子View发出的布局请求不再传给父布局
+     */
+    private boolean mBlockLayoutRequests;
+
+    /**
+     * 插入了itemCount个item，只为新item分配区域，已经布局的item位置不变
+     */
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        if (null == mAdapter || itemCount <= 0) {
+            return;
+        }
+        cancelAsyncPlacement();
+        refreshRegularity();
+        insertItems(positionStart, itemCount);
+        if (!mVirtualized) {
+            addChildren(positionStart, itemCount);
+        }
+        requestLayout();
+    }
+
+    /**
+     * 移除了itemCount个item，只释放它们占用的区域，其余item位置不变，不需要重新布局
+     */
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (null == mAdapter || itemCount <= 0) {
+            return;
+        }
+        cancelAsyncPlacement();
+        if (!mVirtualized) {
+            // 同一批中插入的item可以直接attach这些View，这一批结束后才真正移除
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                View child = mActiveViews.get(i);
+                mActiveViews.remove(i);
+                scrapDetached(child);
+                detachViewFromParent(child);
+            }
+            scheduleFlushDetached();
+        }
+        removeItems(positionStart, itemCount);
+        fillViewport();
+        invalidate();
+    }
+
+    /**
+     * item的内容变化，只重新绑定这些item，位置不变
+     */
+    void onItemRangeChanged(int positionStart, int itemCount) {
+        if (null == mAdapter || itemCount <= 0) {
+            return;
+        }
+        clearPrefetchViews();
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            // 虚拟化模式下没有挂载的item会在滚动到可见区域时重新绑定
+            View child = mActiveViews.get(i);
+            if (child != null) {
+                mActiveViews.put(i, rebindChild(child, i));
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * 带payload的内容变化，adapter能在原来的View上更新时不重新绑定，也不触发整个布局的测量和布局，
+     * 只重绘变化的item；不能局部更新时和没有payload一样重新绑定
+     */
+    void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        if (null == mAdapter || itemCount <= 0) {
+            return;
+        }
+        if (payload == null) {
+            onItemRangeChanged(positionStart, itemCount);
+            return;
+        }
+        boolean redrawLite = false;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            // 预取的View还没挂载，丢弃后滚动到时重新绑定
+            View prefetched = mPrefetchViews.get(i);
+            if (prefetched != null) {
+                mPrefetchViews.remove(i);
+                pushRecycler(prefetched);
+            }
+            View child = mActiveViews.get(i);
+            if (child == null) {
+                // 没有挂载的item会在滚动到可见区域时重新绑定，轻量item直接重绘
+                redrawLite |= isLiteItem(i);
+                continue;
+            }
+            if (!bindPayload(child, i, payload)) {
+                mActiveViews.put(i, rebindChild(child, i));
+            }
+        }
+        if (redrawLite) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 交给adapter在原来的View上更新，尺寸不变，只在原来的位置重新布局这个View
+     *
+     * @return adapter是否处理了payload
+     */
+    private boolean bindPayload(View child, int position, Object payload) {
+        long startNs = metricsStart();
+        boolean handled;
+        mBlockLayoutRequests = true;
+        try {
+            handled = mAdapter.onBindPayload(child, position, payload);
+        } finally {
+            mBlockLayoutRequests = false;
+        }
+        recordTime(LayoutMetrics.TIMER_BIND, startNs);
+        if (!handled) {
+            return false;
+        }
+        LayoutParams params = (LayoutParams) child.getLayoutParams();
+        if (child.isLayoutRequested() && params.mCell >= 0) {
+            layoutAtParams(child, params);
+        }
+        child.invalidate();
+        return true;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (!mBlockLayoutRequests) {
+            super.requestLayout();
+        }
+    }
+
+    /**
+     * item从fromPosition移动到toPosition，位置和挂载的View跟着item走，不需要重新布局
+     */
+    void onItemMoved(int fromPosition, int toPosition) {
+        if (null == mAdapter || fromPosition == toPosition) {
+            return;
+        }
+        cancelAsyncPlacement();
+        moveItem(fromPosition, toPosition);
+        invalidate();
+    }
+
+    /**
+     * 用原来的View作为convertView重新绑定，view type变化或adapter返回了新的View时替换掉原来的View，位置保持不变
+     */
+    private View rebindChild(View child, int position) {
+        LayoutParams oldParams = (LayoutParams) child.getLayoutParams();
+        int cell = oldParams.mCell;
+        int left = oldParams.mLeft;
+        int top = oldParams.mTop;
+        int right = oldParams.mRight;
+        int bottom = oldParams.mBottom;
+
+        // view type变化后不能用原来的View绑定，换成同类型的复用View
+        int viewType = getItemViewType(position);
+        View convertView = viewType == oldParams.mViewType ? child : popRecycler(viewType);
+        long startNs = metricsStart();
+        View newChild = mAdapter.getView(getContext(), position, convertView);
+        recordTime(LayoutMetrics.TIMER_BIND, startNs);
+        if (convertView != child && newChild != convertView) {
+            pushRecycler(convertView);
+        }
+        LayoutParams params = toLayoutParams(newChild.getLayoutParams());
+        params.mViewType = viewType;
+        params.mCell = cell;
+        params.mLeft = left;
+        params.mTop = top;
+        params.mRight = right;
+        params.mBottom = bottom;
+        if (newChild != child) {
+            int index = indexOfChild(child);
+            removeViewInLayout(child);
+            pushRecycler(child);
+            addViewInLayout(newChild, index, params, true);
+        } else if (params != newChild.getLayoutParams()) {
+            newChild.setLayoutParams(params);
+        }
+        if (cell >= 0) {
+            layoutAtParams(newChild, params);
+        }
+        return newChild;
+    }
+
+    /**
+     * 插入itemCount个还没有确定位置的item
+     */
+    private void insertItems(int positionStart, int itemCount) {
+        if (itemCount <= 0) {
+            return;
+        }
+        ensureItemCapacity(mItemCount + itemCount);
+        int end = positionStart + itemCount;
+        int tail = mItemCount - positionStart;
+        System.arraycopy(mItemSizes, positionStart * 2, mItemSizes, end * 2, tail * 2);
+        System.arraycopy(mSizeEstimated, positionStart, mSizeEstimated, end, tail);
+        System.arraycopy(mItemRects, positionStart * 4, mItemRects, end * 4, tail * 4);
+        System.arraycopy(mItemCells, positionStart, mItemCells, end, tail);
+        System.arraycopy(mItemEntries, positionStart, mItemEntries, end, tail);
+        System.arraycopy(mItemIds, positionStart, mItemIds, end, tail);
+        updateEntryIds(end, end + tail);
+        remapPositions(OP_INSERT, positionStart, itemCount);
+        if (mPendingPositions.length < mPendingCount + itemCount) {
+            mPendingPositions = Arrays.copyOf(mPendingPositions, Math.max(mPendingCount + itemCount, mPendingPositions.length * 2));
+        }
+        boolean stableIds = mAdapter != null && mAdapter.hasStableIds();
+        mItemCount += itemCount;
+        for (int i = positionStart; i < end; i++) {
+            mItemSizes[i * 2] = -1;
+            mSizeEstimated[i] = false;
+            mItemCells[i] = -1;
+            mItemEntries[i] = -1;
+            if (stableIds) {
+                mItemIds[i] = mAdapter.getItemId(i);
+                if (mRetainedPlacements.remove(mItemIds[i], mTmpPlacement)) {
+                    restorePlacement(i, mTmpPlacement);
+                    continue;
+                }
+            }
+            mPendingPositions[mPendingCount++] = i;
+        }
+    }
+
+    /**
+     * 移除itemCount个item并释放它们占用的区域
+     */
+    private void removeItems(int positionStart, int itemCount) {
+        int end = positionStart + itemCount;
+        boolean stableIds = mAdapter != null && mAdapter.hasStableIds();
+        for (int i = positionStart; i < end; i++) {
+            if (mItemCells[i] < 0) {
+                continue;
+            }
+            mItemHash.remove(mItemEntries[i]);
+            if (stableIds) {
+                // 区域先不释放，同一批数据变化中重新插入时回到原来的位置
+                System.arraycopy(mItemRects, i * 4, mTmpPlacement, 0, 4);
+                mTmpPlacement[PlacementMap.CELL] = mItemCells[i];
+                mTmpPlacement[PlacementMap.WIDTH] = mItemSizes[i * 2];
+                mTmpPlacement[PlacementMap.HEIGHT] = mItemSizes[i * 2 + 1];
+                mRetainedPlacements.put(mItemIds[i], mTmpPlacement);
+                scheduleReleaseRetained();
             } else {
-                System.arraycopy(array[i], 0, arr[i], extend, array[i].length);
+                synchronized (mEngine) {
+                    mEngine.release(mItemCells[i]);
+                }
+            }
+        }
+        remapPositions(OP_REMOVE, positionStart, itemCount);
+        int tail = mItemCount - end;
+        System.arraycopy(mItemSizes, end * 2, mItemSizes, positionStart * 2, tail * 2);
+        System.arraycopy(mSizeEstimated, end, mSizeEstimated, positionStart, tail);
+        System.arraycopy(mItemRects, end * 4, mItemRects, positionStart * 4, tail * 4);
+        System.arraycopy(mItemCells, end, mItemCells, positionStart, tail);
+        System.arraycopy(mItemEntries, end, mItemEntries, positionStart, tail);
+        System.arraycopy(mItemIds, end, mItemIds, positionStart, tail);
+        updateEntryIds(positionStart, positionStart + tail);
+        mItemCount -= itemCount;
+    }
+
+    /**
+     * 按保留的记录恢复item的尺寸、区域和位置，不需要重新计算
+     */
+    private void restorePlacement(int position, int[] placement) {
+        mItemSizes[position * 2] = placement[PlacementMap.WIDTH];
+        mItemSizes[position * 2 + 1] = placement[PlacementMap.HEIGHT];
+        mItemCells[position] = placement[PlacementMap.CELL];
+        addItemRect(position, placement);
+    }
+
+    /**
+     * 在当前的数据变化处理完后释放没有被找回的区域
+     */
+    private void scheduleReleaseRetained() {
+        if (!mReleaseRetainedScheduled) {
+            mReleaseRetainedScheduled = true;
+            post(mReleaseRetainedRunnable);
+        }
+    }
+
+    /**
+     * 释放所有保留的区域，这些item已经确实被移除了
+     */
+    private void releaseRetainedPlacements() {
+        if (mRetainedPlacements.size() == 0) {
+            return;
+        }
+        // 可能在异步计算进行中调用，引擎只能在持有引擎锁时使用
+        synchronized (mEngine) {
+            for (int slot = 0; slot < mRetainedPlacements.slotCount(); slot++) {
+                if (mRetainedPlacements.isSlotUsed(slot)) {
+                    mEngine.release(mRetainedPlacements.getValue(slot, PlacementMap.CELL));
+                }
+            }
+        }
+        mRetainedPlacements.clear();
+    }
+
+    /**
+     * 移动item，尺寸、位置和区域跟着item一起移动
+     */
+    private void moveItem(int fromPosition, int toPosition) {
+        int width = mItemSizes[fromPosition * 2];
+        int height = mItemSizes[fromPosition * 2 + 1];
+        boolean estimated = mSizeEstimated[fromPosition];
+        int cell = mItemCells[fromPosition];
+        int entry = mItemEntries[fromPosition];
+        long id = mItemIds[fromPosition];
+        System.arraycopy(mItemRects, fromPosition * 4, mTmpRect, 0, 4);
+        int from = Math.min(fromPosition, toPosition) + (fromPosition < toPosition ? 1 : 0);
+        int to = from + (fromPosition < toPosition ? -1 : 1);
+        int length = Math.abs(toPosition - fromPosition);
+        System.arraycopy(mItemSizes, from * 2, mItemSizes, to * 2, length * 2);
+        System.arraycopy(mSizeEstimated, from, mSizeEstimated, to, length);
+        System.arraycopy(mItemRects, from * 4, mItemRects, to * 4, length * 4);
+        System.arraycopy(mItemCells, from, mItemCells, to, length);
+        System.arraycopy(mItemEntries, from, mItemEntries, to, length);
+        System.arraycopy(mItemIds, from, mItemIds, to, length);
+        mItemIds[toPosition] = id;
+        mItemSizes[toPosition * 2] = width;
+        mItemSizes[toPosition * 2 + 1] = height;
+        mSizeEstimated[toPosition] = estimated;
+        mItemCells[toPosition] = cell;
+        mItemEntries[toPosition] = entry;
+        updateEntryIds(Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition) + 1);
+        System.arraycopy(mTmpRect, 0, mItemRects, toPosition * 4, 4);
+        remapPositions(OP_MOVE, fromPosition, toPosition);
+    }
+
+    /**
+     * position移动后同步空间索引中的id
+     */
+    private void updateEntryIds(int from, int to) {
+        for (int position = from; position < to; position++) {
+            if (mItemCells[position] >= 0) {
+                mItemHash.setId(mItemEntries[position], position);
+            }
+        }
+    }
+
+    /**
+     * 按数据变化更新排序数组、待布局数组和挂载的View对应的position，被移除的item直接丢弃
+     */
+    private void remapPositions(int op, int a, int b) {
+        clearPrefetchViews();
+        // position变化后重新通知可见范围
+        mVisibleMin = -1;
+        mVisibleMax = -1;
+        scheduleVisibleRangeCheck();
+        int n = 0;
+        for (int i = 0; i < mPlacedCount; i++) {
+            int position = remapPosition(mSortedPositions[i], op, a, b);
+            if (position >= 0) {
+                mSortedPositions[n++] = position;
+            }
+        }
+        mPlacedCount = n;
+        n = 0;
+        for (int i = 0; i < mPendingCount; i++) {
+            int position = remapPosition(mPendingPositions[i], op, a, b);
+            if (position >= 0) {
+                mPendingPositions[n++] = position;
+            }
+        }
+        mPendingCount = n;
+        n = 0;
+        for (int i = 0; i < mScaledCount; i++) {
+            int position = remapPosition(mScaledPositions[i], op, a, b);
+            if (position >= 0) {
+                mScaledPositions[n++] = position;
+            }
+        }
+        mScaledCount = n;
+        n = 0;
+        for (int i = 0; i < mVisibleCount; i++) {
+            int position = remapPosition(mVisiblePositions[i], op, a, b);
+            if (position >= 0) {
+                mVisiblePositions[n++] = position;
+            }
+        }
+        mVisibleCount = n;
+        if (op == OP_MOVE) {
+            Arrays.sort(mVisiblePositions, 0, mVisibleCount);
+        }
+        int activeCount = mActiveViews.size();
+        if (activeCount > 0) {
+            // 先取出再按新的position放回，复用同一个SparseArray和临时数组
+            if (mRemapKeys.length < activeCount) {
+                int capacity = Math.max(activeCount, mRemapKeys.length * 2);
+                mRemapKeys = new int[capacity];
+                mRemapViews = new View[capacity];
+            }
+            for (int i = 0; i < activeCount; i++) {
+                mRemapKeys[i] = mActiveViews.keyAt(i);
+                mRemapViews[i] = mActiveViews.valueAt(i);
+            }
+            mActiveViews.clear();
+            for (int i = 0; i < activeCount; i++) {
+                int position = remapPosition(mRemapKeys[i], op, a, b);
+                View view = mRemapViews[i];
+                mRemapViews[i] = null;
+                if (position >= 0) {
+                    mActiveViews.put(position, view);
+                } else {
+                    removeViewInLayout(view);
+                    pushRecycler(view);
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算数据变化后的position，被移除时返回-1
+     *
+     * @param op 数据变化类型，插入时a为起点、b为个数，移除时同理，移动时a为起点、b为终点
+     */
+    private static int remapPosition(int position, int op, int a, int b) {
+        if (op == OP_INSERT) {
+            return position >= a ? position + b : position;
+        } else if (op == OP_REMOVE) {
+            if (position >= a + b) {
+                return position - b;
+            }
+            return position >= a ? -1 : position;
+        }
+        if (position == a) {
+            return b;
+        } else if (a < b && position > a && position <= b) {
+            return position - 1;
+        } else if (a > b && position >= b && position < a) {
+            return position + 1;
+        }
+        return position;
+    }
+
+    //-----------------------------------性能统计相关-------------------------------------------------
+
+    /**
+     * 正在统计的结果，没有设置监听时为null，这时所有统计点只判断一次null
+     */
+    private LayoutMetrics mMetrics;
+    private MetricsListener mMetricsListener;
+    private long mMetricsIntervalMillis;
+    private boolean mMetricsReportScheduled;
+    private final Runnable mMetricsReportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mMetricsReportScheduled = false;
+            if (mMetrics != null && mMetricsListener != null) {
+                mMetricsListener.onMetrics(mMetrics);
+                mMetrics.reset();
             }
         }
-        return arr;
+    };
+
+    /**
+     * 设置性能统计的监听，每秒最多回调一次
+     *
+     * @see #setMetricsListener(MetricsListener, long)
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        setMetricsListener(listener, 1000);
+    }
+
+    /**
+     * 设置性能统计的监听。统计在主线程中累加，有新的统计时最多每intervalMillis回调一次。
+     * 传入null时关闭统计，关闭后不再调用System.nanoTime，也不记录任何数据
+     *
+     * @param intervalMillis 回调间隔，单位毫秒
+     */
+    public void setMetricsListener(MetricsListener listener, long intervalMillis) {
+        mMetricsListener = listener;
+        mMetricsIntervalMillis = Math.max(0, intervalMillis);
+        if (listener == null) {
+            mMetrics = null;
+            removeCallbacks(mMetricsReportRunnable);
+            mMetricsReportScheduled = false;
+        } else if (mMetrics == null) {
+            mMetrics = new LayoutMetrics();
+        }
+    }
+
+    /**
+     * 统计惯性滚动和回弹推进的帧数
+     */
+    @Override
+    public void computeScroll() {
+        boolean scrolling = mMetrics != null && isFlinging();
+        super.computeScroll();
+        if (scrolling) {
+            recordCount(LayoutMetrics.COUNTER_SCROLL_FRAMES, 1);
+        }
+    }
+
+    /**
+     * @return 开启统计时返回当前时间，否则返回0
+     */
+    private long metricsStart() {
+        return mMetrics != null ? System.nanoTime() : 0;
+    }
+
+    private void recordTime(int timer, long startNs) {
+        if (mMetrics != null) {
+            mMetrics.record(timer, System.nanoTime() - startNs);
+            scheduleMetricsReport();
+        }
+    }
+
+    private void recordCount(int counter, long value) {
+        if (mMetrics != null) {
+            mMetrics.add(counter, value);
+            scheduleMetricsReport();
+        }
+    }
+
+    private void scheduleMetricsReport() {
+        if (!mMetricsReportScheduled) {
+            mMetricsReportScheduled = true;
+            postDelayed(mMetricsReportRunnable, mMetricsIntervalMillis);
+        }
+    }
+
+    /**
+     * 性能统计的回调，在主线程中调用
+     */
+    public interface MetricsListener {
+        /**
+         * @param metrics 上次回调之后的统计结果，回调返回后清零，需要保留时自行复制其中的数据
+         */
+        void onMetrics(LayoutMetrics metrics);
     }
 
+    //-----------------------------------触摸相关-------------------------------------------------
+
+    /**
+     * 按下时通过空间索引找到并接收了事件的子View，之后的事件直接交给它，没有时为null
+     */
+    private View mTouchTarget;
+    /**
+     * 本次触摸中子View是否请求了不要拦截
+     */
+    private boolean mDisallowIntercept;
     /**
-     * 计算两个View是否重叠，如果重叠，那么他们之间一定有一个矩形区域是共有的
+     * 子View有缩放时把事件转换到子View坐标系的矩阵
      */
-    private boolean isOverlap(LayoutParams params) {
-        int overlapAdd = 2;//计算重叠时候的间距
-        int l = params.mLeft - overlapAdd;
-        int t = params.mTop - overlapAdd;
-        int r = params.mRight + overlapAdd;
-        int b = params.mBottom + overlapAdd;
+    private final Matrix mTouchMatrix = new Matrix();
 
-        Rect rect = new Rect();
+    /**
+     * 查找坐标下的item，通过空间索引查找，不遍历子View
+     *
+     * @param x 相对于自身左上角的坐标，和MotionEvent.getX()一致
+     * @param y 相对于自身左上角的坐标，和MotionEvent.getY()一致
+     * @return item的position，没有时返回-1
+     */
+    public int findItemAt(float x, float y) {
+        return mItemHash.findAt((int) x + getScrollX(), (int) y + getScrollY());
+    }
 
-        for (View v : mFixedViews) {
-            int vl = v.getLeft() - overlapAdd;
-            int vt = v.getTop() - overlapAdd;
-            int vr = v.getRight() + overlapAdd;
-            int vb = v.getBottom() + overlapAdd;
-            rect.left = Math.max(l, vl);
-            rect.top = Math.max(t, vt);
-            rect.right = Math.min(r, vr);
-            rect.bottom = Math.min(b, vb);
-            if (rect.right >= rect.left && rect.bottom >= rect.top) {
-                return true;
+    /**
+     * 按下时通过空间索引找到手指下的子View直接分发，不逐个检查子View；之后的事件交给同一个子View，
+     * 被拦截时给它发送取消事件。没有找到或者子View不处理时按ViewGroup的默认逻辑分发
+     */
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            mTouchTarget = null;
+            mDisallowIntercept = false;
+            if (!onInterceptTouchEvent(ev)) {
+                int position = findItemAt(ev.getX(), ev.getY());
+                View child = position >= 0 ? getItemView(position) : null;
+                if (child != null && child.getVisibility() == VISIBLE && dispatchToChild(child, ev, true)) {
+                    mTouchTarget = child;
+                    return true;
+                }
             }
+            return super.dispatchTouchEvent(ev);
+        }
+        View target = mTouchTarget;
+        if (target == null) {
+            return super.dispatchTouchEvent(ev);
+        }
+        if (target.getParent() != this || (!mDisallowIntercept && onInterceptTouchEvent(ev))) {
+            // 被拦截或者子View已经移除，之后的事件由默认逻辑交给自己处理
+            mTouchTarget = null;
+            MotionEvent cancel = MotionEvent.obtain(ev);
+            cancel.setAction(MotionEvent.ACTION_CANCEL);
+            dispatchToChild(target, cancel, false);
+            cancel.recycle();
+            return true;
+        }
+        boolean handled = dispatchToChild(target, ev, false);
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mTouchTarget = null;
+        }
+        return handled;
+    }
+
+    @Override
+    public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        mDisallowIntercept = disallowIntercept;
+        super.requestDisallowInterceptTouchEvent(disallowIntercept);
+    }
+
+    /**
+     * 把事件转换到子View的坐标系后交给它，和ViewGroup的默认逻辑一致，子View有缩放时使用逆矩阵
+     *
+     * @param checkBounds 为true时坐标不在子View内就不分发
+     */
+    private boolean dispatchToChild(View child, MotionEvent ev, boolean checkBounds) {
+        float offsetX = getScrollX() - child.getLeft();
+        float offsetY = getScrollY() - child.getTop();
+        Matrix matrix = child.getMatrix();
+        MotionEvent event = ev;
+        if (matrix.isIdentity()) {
+            ev.offsetLocation(offsetX, offsetY);
+        } else {
+            event = MotionEvent.obtain(ev);
+            event.offsetLocation(offsetX, offsetY);
+            matrix.invert(mTouchMatrix);
+            event.transform(mTouchMatrix);
+        }
+        boolean handled = false;
+        if (!checkBounds || (event.getX() >= 0 && event.getX() < child.getWidth()
+                && event.getY() >= 0 && event.getY() < child.getHeight())) {
+            handled = child.dispatchTouchEvent(event);
+        }
+        if (event == ev) {
+            ev.offsetLocation(-offsetX, -offsetY);
+        } else {
+            event.recycle();
         }
-        return false;
+        return handled;
     }
 
     private int getParentWidth() {
@@ -473,6 +2682,18 @@ public class RandomLayout extends ScrollViewGroup {
         private int mRight;
         private int mTop;
         private int mBottom;
+        /**
+         * 占用的区域下标，-1表示还没有分配区域
+         */
+        private int mCell = -1;
+        /**
+         * 绑定时的view type，回收时放入对应的集合
+         */
+        private int mViewType;
+        /**
+         * 在这次测量中已经测量过，测量结果在布局前仍然有效
+         */
+        private boolean mMeasured;
 
         public LayoutParams(int w, int h) {
             super(w, h);
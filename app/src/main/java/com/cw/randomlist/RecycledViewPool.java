@@ -0,0 +1,249 @@
+package com.cw.randomlist;
+
+import android.content.ComponentCallbacks2;
+import android.util.SparseArray;
+import android.view.View;
+
+/**
+ * 按view type分组的回收集合，每种类型一个有容量上限的数组，后放入的先取出。
+ * 超出上限的View直接丢弃，并记录命中、未命中、丢弃的次数。
+ * 可以通过{@link RandomLayout#setRecycledViewPool(RecycledViewPool)}在多个RandomLayout之间共享，
+ * 这时不同adapter的同一个view type必须是同一种View。只能在主线程中使用
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class RecycledViewPool {
+
+    /**
+     * 每种类型默认最多保留的View个数
+     */
+    public static final int DEFAULT_MAX_SCRAP = 20;
+
+    private final SparseArray<ScrapHeap> mHeaps = new SparseArray<>();
+    private int mDefaultMaxScrap = DEFAULT_MAX_SCRAP;
+    /**
+     * 所有类型加起来最多保留的View个数
+     */
+    private int mMaxTotal = Integer.MAX_VALUE;
+    /**
+     * 所有类型当前保留的View个数
+     */
+    private int mTotal;
+
+    /**
+     * 设置一种类型最多保留的View个数，已保留的超出部分被丢弃
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        ScrapHeap heap = getHeap(viewType);
+        heap.mMax = Math.max(0, max);
+        while (heap.mSize > heap.mMax) {
+            evict(heap);
+        }
+    }
+
+    /**
+     * 设置所有类型加起来最多保留的View个数，超出时从保留最多的类型开始丢弃
+     */
+    public void setMaxTotalRecycledViews(int max) {
+        mMaxTotal = Math.max(0, max);
+        trimToSize(mMaxTotal);
+    }
+
+    public int getMaxTotalRecycledViews() {
+        return mMaxTotal;
+    }
+
+    /**
+     * 设置没有单独设置上限的类型最多保留的View个数，只对之后第一次用到的类型生效
+     */
+    public void setDefaultMaxRecycledViews(int max) {
+        mDefaultMaxScrap = Math.max(0, max);
+    }
+
+    /**
+     * 取出一个指定类型的View
+     *
+     * @return 没有时返回null
+     */
+    public View get(int viewType) {
+        ScrapHeap heap = getHeap(viewType);
+        if (heap.mSize == 0) {
+            heap.mMisses++;
+            return null;
+        }
+        heap.mHits++;
+        mTotal--;
+        View view = heap.mViews[--heap.mSize];
+        heap.mViews[heap.mSize] = null;
+        return view;
+    }
+
+    /**
+     * 放入一个View，这种类型或者总数已满时丢弃
+     *
+     * @return 是否放入
+     */
+    public boolean put(View view, int viewType) {
+        ScrapHeap heap = getHeap(viewType);
+        if (heap.mSize >= heap.mMax || mTotal >= mMaxTotal) {
+            heap.mEvictions++;
+            return false;
+        }
+        if (heap.mSize == heap.mViews.length) {
+            View[] views = new View[Math.min(heap.mMax, Math.max(4, heap.mSize * 2))];
+            System.arraycopy(heap.mViews, 0, views, 0, heap.mSize);
+            heap.mViews = views;
+        }
+        heap.mViews[heap.mSize++] = view;
+        mTotal++;
+        return true;
+    }
+
+    /**
+     * 丢弃所有View，统计数据保留
+     */
+    public void clear() {
+        for (int i = 0; i < mHeaps.size(); i++) {
+            ScrapHeap heap = mHeaps.valueAt(i);
+            for (int j = 0; j < heap.mSize; j++) {
+                heap.mViews[j] = null;
+            }
+            heap.mSize = 0;
+        }
+        mTotal = 0;
+    }
+
+    /**
+     * 丢弃View直到总数不超过maxViews，每次从保留最多的类型丢弃，各类型保留的个数趋于平均
+     */
+    public void trimToSize(int maxViews) {
+        while (mTotal > Math.max(0, maxViews)) {
+            ScrapHeap largest = null;
+            for (int i = 0; i < mHeaps.size(); i++) {
+                ScrapHeap heap = mHeaps.valueAt(i);
+                if (largest == null || heap.mSize > largest.mSize) {
+                    largest = heap;
+                }
+            }
+            evict(largest);
+        }
+    }
+
+    /**
+     * 按系统的内存等级逐步丢弃View，在Activity或Application的onTrimMemory中调用。
+     * 运行中内存开始偏低时保留一半，更低时保留四分之一，内存紧张或界面已经不可见时全部丢弃
+     *
+     * @param level ComponentCallbacks2中的TRIM_MEMORY_*
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(mTotal / 4);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            trimToSize(mTotal / 2);
+        }
+    }
+
+    /**
+     * @return 指定类型当前保留的View个数
+     */
+    public int getRecycledViewCount(int viewType) {
+        ScrapHeap heap = mHeaps.get(viewType);
+        return heap != null ? heap.mSize : 0;
+    }
+
+    /**
+     * @return 所有类型当前保留的View个数
+     */
+    public int getRecycledViewCount() {
+        return mTotal;
+    }
+
+    public long getHitCount(int viewType) {
+        ScrapHeap heap = mHeaps.get(viewType);
+        return heap != null ? heap.mHits : 0;
+    }
+
+    public long getMissCount(int viewType) {
+        ScrapHeap heap = mHeaps.get(viewType);
+        return heap != null ? heap.mMisses : 0;
+    }
+
+    public long getEvictionCount(int viewType) {
+        ScrapHeap heap = mHeaps.get(viewType);
+        return heap != null ? heap.mEvictions : 0;
+    }
+
+    public long getHitCount() {
+        long count = 0;
+        for (int i = 0; i < mHeaps.size(); i++) {
+            count += mHeaps.valueAt(i).mHits;
+        }
+        return count;
+    }
+
+    public long getMissCount() {
+        long count = 0;
+        for (int i = 0; i < mHeaps.size(); i++) {
+            count += mHeaps.valueAt(i).mMisses;
+        }
+        return count;
+    }
+
+    public long getEvictionCount() {
+        long count = 0;
+        for (int i = 0; i < mHeaps.size(); i++) {
+            count += mHeaps.valueAt(i).mEvictions;
+        }
+        return count;
+    }
+
+    /**
+     * 清零统计数据
+     */
+    public void resetStats() {
+        for (int i = 0; i < mHeaps.size(); i++) {
+            ScrapHeap heap = mHeaps.valueAt(i);
+            heap.mHits = 0;
+            heap.mMisses = 0;
+            heap.mEvictions = 0;
+        }
+    }
+
+    /**
+     * 丢弃一种类型中最早放入的View
+     */
+    private void evict(ScrapHeap heap) {
+        System.arraycopy(heap.mViews, 1, heap.mViews, 0, heap.mSize - 1);
+        heap.mViews[--heap.mSize] = null;
+        heap.mEvictions++;
+        mTotal--;
+    }
+
+    private ScrapHeap getHeap(int viewType) {
+        ScrapHeap heap = mHeaps.get(viewType);
+        if (heap == null) {
+            heap = new ScrapHeap(mDefaultMaxScrap);
+            mHeaps.put(viewType, heap);
+        }
+        return heap;
+    }
+
+    /**
+     * 一种类型的View
+     */
+    private static class ScrapHeap {
+        private View[] mViews = new View[0];
+        private int mSize;
+        private int mMax;
+        private long mHits;
+        private long mMisses;
+        private long mEvictions;
+
+        ScrapHeap(int max) {
+            mMax = max;
+        }
+    }
+}
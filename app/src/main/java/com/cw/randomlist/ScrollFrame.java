@@ -0,0 +1,128 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * 一帧内合并后的滚动信息，包括这一帧的滚动距离、滚动状态和可见item的变化。
+ * 同一个对象每帧复用，只在回调中有效
+ *
+ * @author cw
+ * @date 2026/10/17
+ * @see ScrollViewGroup#setScrollFrameListener(ScrollViewGroup.ScrollFrameListener)
+ */
+public class ScrollFrame {
+
+    private int mDx;
+    private int mDy;
+    private int mScrollX;
+    private int mScrollY;
+    private int mScrollState;
+    private int mFirstVisiblePosition = -1;
+    private int mLastVisiblePosition = -1;
+    private int[] mEntered = new int[0];
+    private int mEnteredCount;
+    private int[] mExited = new int[0];
+    private int mExitedCount;
+
+    void reset(int dx, int dy, int scrollX, int scrollY, int scrollState) {
+        mDx = dx;
+        mDy = dy;
+        mScrollX = scrollX;
+        mScrollY = scrollY;
+        mScrollState = scrollState;
+        mFirstVisiblePosition = -1;
+        mLastVisiblePosition = -1;
+        mEnteredCount = 0;
+        mExitedCount = 0;
+    }
+
+    void setVisibleRange(int first, int last) {
+        mFirstVisiblePosition = first;
+        mLastVisiblePosition = last;
+    }
+
+    void addEntered(int position) {
+        if (mEnteredCount == mEntered.length) {
+            mEntered = Arrays.copyOf(mEntered, Math.max(8, mEnteredCount * 2));
+        }
+        mEntered[mEnteredCount++] = position;
+    }
+
+    void addExited(int position) {
+        if (mExitedCount == mExited.length) {
+            mExited = Arrays.copyOf(mExited, Math.max(8, mExitedCount * 2));
+        }
+        mExited[mExitedCount++] = position;
+    }
+
+    /**
+     * @return 上一次回调之后水平方向上的滚动距离
+     */
+    public int getDx() {
+        return mDx;
+    }
+
+    /**
+     * @return 上一次回调之后垂直方向上的滚动距离
+     */
+    public int getDy() {
+        return mDy;
+    }
+
+    public int getScrollX() {
+        return mScrollX;
+    }
+
+    public int getScrollY() {
+        return mScrollY;
+    }
+
+    /**
+     * @return {@link ScrollViewGroup#IDLE}或{@link ScrollViewGroup#SCROLLING}
+     */
+    public int getScrollState() {
+        return mScrollState;
+    }
+
+    /**
+     * @return 可见区域内沿主轴方向第一个出现的item，没有时返回-1
+     */
+    public int getFirstVisiblePosition() {
+        return mFirstVisiblePosition;
+    }
+
+    /**
+     * @return 可见区域内沿主轴方向最后一个出现的item，没有时返回-1
+     */
+    public int getLastVisiblePosition() {
+        return mLastVisiblePosition;
+    }
+
+    /**
+     * @return 上一次回调之后进入可见区域的item个数
+     */
+    public int getEnteredCount() {
+        return mEnteredCount;
+    }
+
+    /**
+     * @return 进入可见区域的第index个item，按position从小到大排列
+     */
+    public int getEnteredPosition(int index) {
+        return mEntered[index];
+    }
+
+    /**
+     * @return 上一次回调之后离开可见区域的item个数
+     */
+    public int getExitedCount() {
+        return mExitedCount;
+    }
+
+    /**
+     * @return 离开可见区域的第index个item，按position从小到大排列
+     */
+    public int getExitedPosition(int index) {
+        return mExited[index];
+    }
+}
@@ -3,6 +3,7 @@ package com.cw.randomlist;
 import android.content.Context;
 import android.support.annotation.IntDef;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
@@ -43,30 +44,42 @@ public abstract class ScrollViewGroup extends ViewGroup {
      * @param position position
      */
     public void setCurrentItem(int position, boolean smooth) {
-        if (getChildCount() > position) {
-            View child = getChildAt(position);
-            final int[] location = new int[2];
-            child.getLocationOnScreen(location);
-            if (mOrientation == HORIZONTAL) {
-                int localX = location[0];
-                if (smooth) {
-                    mScroller.startScroll(getScrollX(), 0, localX, 0, 300);
-                    postInvalidate();
-                } else {
-                    scrollTo(getScrollX() + localX, 0);
-                }
+        int target = getItemScrollPosition(position);
+        if (target == Integer.MIN_VALUE) {
+            return;
+        }
+        if (mOrientation == HORIZONTAL) {
+            if (smooth) {
+                mScroller.startScroll(getScrollX(), 0, target - getScrollX(), 0, 300);
+                postInvalidate();
             } else {
-                int localY = location[1];
-                if (smooth) {
-                    mScroller.startScroll(0, getScrollY(), 0, localY, 300);
-                    postInvalidate();
-                } else {
-                    scrollTo(0, getScrollY() + localY);
-                }
+                scrollTo(target, 0);
+            }
+        } else {
+            if (smooth) {
+                mScroller.startScroll(0, getScrollY(), 0, target - getScrollY(), 300);
+                postInvalidate();
+            } else {
+                scrollTo(0, target);
             }
         }
     }
 
+    /**
+     * 计算定位到position时主轴方向上的滚动距离，默认把position当作子View的下标
+     *
+     * @return 滚动距离，无法定位时返回Integer.MIN_VALUE
+     */
+    protected int getItemScrollPosition(int position) {
+        if (getChildCount() <= position) {
+            return Integer.MIN_VALUE;
+        }
+        View child = getChildAt(position);
+        final int[] location = new int[2];
+        child.getLocationOnScreen(location);
+        return mOrientation == HORIZONTAL ? getScrollX() + location[0] : getScrollY() + location[1];
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         int action = ev.getAction();
@@ -102,9 +115,8 @@ public abstract class ScrollViewGroup extends ViewGroup {
             } else {
                 touchMoveVertical(event);
             }
-            //滚动距离的回调
-            //scrollChangeListener.onScrollChange(getScrollX(), getScrollY());
-            mScrollState = SCROLLING;
+            //滚动距离的回调在onScrollChanged中按帧合并
+            setScrollState(SCROLLING);
         } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
             //计算1000ms的速度
             mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
@@ -112,25 +124,25 @@ public abstract class ScrollViewGroup extends ViewGroup {
             final float velocityX = mVelocityTracker.getXVelocity(mPointerId);
             final float velocityY = mVelocityTracker.getYVelocity(mPointerId);
             if (mOrientation == HORIZONTAL) {
-                if (getScrollX() < 0) {
+                if (getScrollX() < getScrollStart()) {
                     //超出起始边界，弹回起始位置
-                    mScroller.startScroll(getScrollX(), 0, -getScrollX(), 0, 300);
+                    mScroller.startScroll(getScrollX(), 0, getScrollStart() - getScrollX(), 0, 300);
                     onStartPoint();
-                } else if (getScrollX() + getParentWidth() > getWidth()) {
+                } else if (getScrollX() > getScrollEnd()) {
                     //超过结尾边界同理
-                    mScroller.startScroll(getScrollX(), 0, -(getScrollX() + getParentWidth() - getWidth()), 0, 300);
+                    mScroller.startScroll(getScrollX(), 0, getScrollEnd() - getScrollX(), 0, 300);
                     onEndPoint();
                 } else {
                     //中间时候，按最后的瞬时速度抛出，不超过剩下的距离
-                    mScroller.fling(getScrollX(), 0, (int) -velocityX, 0, 0, getWidth() - getParentWidth() + 100, 0, 0);
+                    mScroller.fling(getScrollX(), 0, (int) -velocityX, 0, getScrollStart(), getScrollEnd() + 100, 0, 0);
                 }
             } else {
-                if (getScrollY() < 0) {
-                    mScroller.startScroll(0, getScrollY(), 0, -getScrollY(), 300);
-                } else if (getScrollY() + getParentHeight() > getHeight()) {
-                    mScroller.startScroll(0, getScrollY(), 0, -(getScrollY() + getParentHeight() - getHeight()), 300);
+                if (getScrollY() < getScrollStart()) {
+                    mScroller.startScroll(0, getScrollY(), 0, getScrollStart() - getScrollY(), 300);
+                } else if (getScrollY() > getScrollEnd()) {
+                    mScroller.startScroll(0, getScrollY(), 0, getScrollEnd() - getScrollY(), 300);
                 } else {
-                    mScroller.fling(0, getScrollY(), 0, (int) -velocityY, 0, 0, 0, getHeight() - getParentHeight() + 100);
+                    mScroller.fling(0, getScrollY(), 0, (int) -velocityY, 0, 0, getScrollStart(), getScrollEnd() + 100);
                 }
             }
             isFirst = true;
@@ -148,7 +160,7 @@ public abstract class ScrollViewGroup extends ViewGroup {
         float x = event.getX();
         int offsetX;
         //超出界限时，增加阻力
-        if (getScrollX() < 0 || getScrollX() + getParentWidth() > getWidth()) {
+        if (getScrollX() < getScrollStart() || getScrollX() > getScrollEnd()) {
             offsetX = (int) ((x - lastX) / 2.5);
         } else {
             offsetX = (int) (x - lastX);
@@ -163,13 +175,13 @@ public abstract class ScrollViewGroup extends ViewGroup {
         } else {
             //同向
             if (lastX >= downX) {
-                if (getScrollX() <= 0) {
+                if (getScrollX() <= getScrollStart()) {
                     getParent().requestDisallowInterceptTouchEvent(false);
                 } else {
                     getParent().requestDisallowInterceptTouchEvent(true);
                 }
             } else {
-                if (getScrollX() >= getWidth() - getParentWidth()) {
+                if (getScrollX() >= getScrollEnd()) {
                     getParent().requestDisallowInterceptTouchEvent(false);
                 } else {
                     getParent().requestDisallowInterceptTouchEvent(true);
@@ -189,7 +201,7 @@ public abstract class ScrollViewGroup extends ViewGroup {
         float y = event.getY();
         int offsetY;
         //超出界限时，增加阻力
-        if (getScrollY() < 0 || getScrollY() + getParentHeight() > getHeight()) {
+        if (getScrollY() < getScrollStart() || getScrollY() > getScrollEnd()) {
             offsetY = (int) ((y - lastY) / 2.5);
         } else {
             offsetY = (int) (y - lastY);
@@ -204,13 +216,13 @@ public abstract class ScrollViewGroup extends ViewGroup {
         } else {
             //同向
             if (lastY >= downY) {
-                if (getScrollY() <= 0) {
+                if (getScrollY() <= getScrollStart()) {
                     getParent().requestDisallowInterceptTouchEvent(false);
                 } else {
                     getParent().requestDisallowInterceptTouchEvent(true);
                 }
             } else {
-                if (getScrollY() >= getHeight() - getParentHeight()) {
+                if (getScrollY() >= getScrollEnd()) {
                     getParent().requestDisallowInterceptTouchEvent(false);
                 } else {
                     getParent().requestDisallowInterceptTouchEvent(true);
@@ -247,6 +259,23 @@ public abstract class ScrollViewGroup extends ViewGroup {
         }
     }
 
+    /**
+     * 内容起点对应的滚动距离，默认为0，内容向前增长时可以为负数
+     */
+    protected int getScrollStart() {
+        return 0;
+    }
+
+    /**
+     * @return 滚动到内容结尾时的滚动距离
+     */
+    private int getScrollEnd() {
+        if (mOrientation == HORIZONTAL) {
+            return getScrollStart() + getWidth() - getParentWidth();
+        }
+        return getScrollStart() + getHeight() - getParentHeight();
+    }
+
     private int getParentWidth() {
         ViewGroup parent = (ViewGroup) getParent();
         return parent.getWidth();
@@ -263,9 +292,9 @@ public abstract class ScrollViewGroup extends ViewGroup {
         if (mScroller.computeScrollOffset()) {
             scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
             postInvalidate();//当没滚动到需要的位置时，不断的重绘，形成动画
-            mScrollState = SCROLLING;
+            setScrollState(SCROLLING);
         } else {
-            mScrollState = IDLE;
+            setScrollState(IDLE);
         }
     }
 
@@ -307,7 +336,44 @@ public abstract class ScrollViewGroup extends ViewGroup {
         return mScrollState;
     }
 
+    /**
+     * 滚动状态变化时也通知一次，停止滚动时能收到IDLE
+     */
+    private void setScrollState(int state) {
+        if (mScrollState != state) {
+            mScrollState = state;
+            scheduleScrollFrame();
+        }
+    }
+
+    /**
+     * 是否正在按Scroller滚动（惯性滚动或回弹）
+     */
+    protected boolean isFlinging() {
+        return !mScroller.isFinished();
+    }
+
+    /**
+     * @return Scroller滚动的终点，主轴方向上的滚动距离
+     */
+    protected int getFlingFinalPosition() {
+        return mOrientation == HORIZONTAL ? mScroller.getFinalX() : mScroller.getFinalY();
+    }
+
     private ScrollChangeListener scrollChangeListener;
+    private ScrollFrameListener scrollFrameListener;
+    /**
+     * 上一次回调之后累计的滚动距离
+     */
+    private int mPendingDx, mPendingDy;
+    private boolean mScrollFrameScheduled;
+    private final ScrollFrame mScrollFrame = new ScrollFrame();
+    private final Choreographer.FrameCallback mScrollFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatchScrollFrame();
+        }
+    };
 
     /**
      * 设置滚动监听
@@ -318,6 +384,60 @@ public abstract class ScrollViewGroup extends ViewGroup {
         this.scrollChangeListener = l;
     }
 
+    /**
+     * 设置按帧合并的滚动监听
+     *
+     * @param l 回调
+     */
+    public void setScrollFrameListener(ScrollFrameListener l) {
+        this.scrollFrameListener = l;
+    }
+
+    /**
+     * 拖动和Scroller动画的滚动都经过这里，只累计距离，每帧最多回调一次
+     */
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        mPendingDx += l - oldl;
+        mPendingDy += t - oldt;
+        scheduleScrollFrame();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mScrollFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(mScrollFrameCallback);
+            mScrollFrameScheduled = false;
+        }
+    }
+
+    private void scheduleScrollFrame() {
+        if (scrollFrameListener != null && !mScrollFrameScheduled) {
+            mScrollFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mScrollFrameCallback);
+        }
+    }
+
+    private void dispatchScrollFrame() {
+        mScrollFrameScheduled = false;
+        if (scrollFrameListener == null) {
+            return;
+        }
+        mScrollFrame.reset(mPendingDx, mPendingDy, getScrollX(), getScrollY(), mScrollState);
+        mPendingDx = 0;
+        mPendingDy = 0;
+        onFillScrollFrame(mScrollFrame);
+        scrollFrameListener.onScrollFrame(mScrollFrame);
+    }
+
+    /**
+     * 回调前填充可见item的信息，默认没有可见item的信息
+     */
+    protected void onFillScrollFrame(ScrollFrame frame) {
+    }
+
     private void onStartPoint() {
         if (scrollChangeListener != null) {
             scrollChangeListener.onStartPoint();
@@ -333,10 +453,22 @@ public abstract class ScrollViewGroup extends ViewGroup {
     /**
      * 滚动距离监听器
      */
-    interface ScrollChangeListener {
+    public interface ScrollChangeListener {
         void onStartPoint();
 
         void onEndPoint();
     }
 
+    /**
+     * 按帧合并的滚动监听器
+     */
+    public interface ScrollFrameListener {
+        /**
+         * 滚动或滚动状态变化后，每帧最多回调一次，多次滚动合并为一次
+         *
+         * @param frame 合并后的滚动信息，只在回调中有效
+         */
+        void onScrollFrame(ScrollFrame frame);
+    }
+
 }
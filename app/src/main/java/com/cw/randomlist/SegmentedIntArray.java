@@ -0,0 +1,83 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * 分段存储的int数组，下标可以为负数，向两端扩展时只分配新的段，不复制已有的元素。
+ * 没有设置过的元素为默认值
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class SegmentedIntArray {
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final int mDefaultValue;
+    private int[][] mSegments = new int[0][];
+    /**
+     * mSegments[0]对应的段下标
+     */
+    private int mFirstSegment;
+
+    SegmentedIntArray(int defaultValue) {
+        mDefaultValue = defaultValue;
+    }
+
+    int get(int index) {
+        int slot = (index >> SEGMENT_SHIFT) - mFirstSegment;
+        if (slot < 0 || slot >= mSegments.length || mSegments[slot] == null) {
+            return mDefaultValue;
+        }
+        return mSegments[slot][index & SEGMENT_MASK];
+    }
+
+    void set(int index, int value) {
+        int segment = index >> SEGMENT_SHIFT;
+        ensureSegment(segment);
+        int slot = segment - mFirstSegment;
+        if (mSegments[slot] == null) {
+            if (value == mDefaultValue) {
+                return;
+            }
+            mSegments[slot] = new int[1 << SEGMENT_SHIFT];
+            if (mDefaultValue != 0) {
+                Arrays.fill(mSegments[slot], mDefaultValue);
+            }
+        }
+        mSegments[slot][index & SEGMENT_MASK] = value;
+    }
+
+    /**
+     * 所有元素恢复为默认值
+     */
+    void clear() {
+        Arrays.fill(mSegments, null);
+    }
+
+    /**
+     * 保证段表包含segment，需要扩展的一端按当前长度倍增，只复制段的引用
+     */
+    private void ensureSegment(int segment) {
+        if (mSegments.length == 0) {
+            mSegments = new int[4][];
+            mFirstSegment = segment;
+            return;
+        }
+        int last = mFirstSegment + mSegments.length - 1;
+        if (segment >= mFirstSegment && segment <= last) {
+            return;
+        }
+        int first = mFirstSegment;
+        if (segment < mFirstSegment) {
+            first = Math.min(segment, mFirstSegment - mSegments.length);
+        } else {
+            last = Math.max(segment, mFirstSegment + mSegments.length * 2 - 1);
+        }
+        int[][] segments = new int[last - first + 1][];
+        System.arraycopy(mSegments, 0, segments, mFirstSegment - first, mSegments.length);
+        mSegments = segments;
+        mFirstSegment = first;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * 按item主轴起点排序的position数组的操作，起点从位置数组中读取(每4个int依次为left、top、right、bottom)。
+ * 只依赖纯Java，可以直接在JVM上benchmark
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+final class SortedPositions {
+
+    private SortedPositions() {
+    }
+
+    /**
+     * 二分查找第一个主轴起点不小于start的下标
+     *
+     * @param startField 起点在每条位置记录中的下标，VERTICAL时为1，HORIZONTAL时为0
+     */
+    static int findFirst(int[] sorted, int count, int start, int[] rects, int startField) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rects[sorted[mid] * 4 + startField] < start) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 插入一个position，起点相同时排在已有的之后。sorted的容量至少为count + 1
+     *
+     * @return 插入后的个数
+     */
+    static int insert(int[] sorted, int count, int position, int[] rects, int startField) {
+        int idx = findFirst(sorted, count, rects[position * 4 + startField] + 1, rects, startField);
+        System.arraycopy(sorted, idx, sorted, idx + 1, count - idx);
+        sorted[idx] = position;
+        return count + 1;
+    }
+
+    /**
+     * 把一批position合并进排序数组：新的一批先排序，再从后往前一次合并，代价为O(count + added·log(added))，
+     * 向前添加时新item都在开头也不会逐个移动已有的position。sorted的容量至少为count + added
+     *
+     * @param positions 新的position，不需要有序，内容不变
+     * @param keys      复用的临时数组，容量不够时重新分配
+     * @return 复用的临时数组
+     */
+    static long[] merge(int[] sorted, int count, int[] positions, int added, int[] rects, int startField, long[] keys) {
+        if (added == 0) {
+            return keys;
+        }
+        if (keys == null || keys.length < added) {
+            keys = new long[Math.max(added, keys == null ? 16 : keys.length * 2)];
+        }
+        // 起点在高32位，position在低32位，排序后起点相同的按position排列
+        for (int i = 0; i < added; i++) {
+            int position = positions[i];
+            keys[i] = ((long) rects[position * 4 + startField] << 32) | position;
+        }
+        Arrays.sort(keys, 0, added);
+        int i = count - 1;
+        int j = added - 1;
+        int k = count + added - 1;
+        while (j >= 0) {
+            // 起点相同时新的排在已有的之后，和逐个插入一致
+            if (i >= 0 && rects[sorted[i] * 4 + startField] > (int) (keys[j] >> 32)) {
+                sorted[k--] = sorted[i--];
+            } else {
+                sorted[k--] = (int) keys[j--];
+            }
+        }
+        return keys;
+    }
+}
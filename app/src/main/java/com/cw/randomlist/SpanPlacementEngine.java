@@ -0,0 +1,396 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 跨区域的位置计算引擎：把每个区域在两个方向上再细分，item按尺寸占用若干个细分格子组成的矩形区域，
+ * 只在自己的区域内随机偏移，大于一个区域的item也不会压到相邻的item。
+ * 区域用天际线算法分配：每条交叉轴上的细分格子记录已占用的最远位置，新item放在能让它最靠前的位置，
+ * 同样靠前的位置中随机选一个，每个item的耗时只和交叉轴上的格子数有关，和item总数无关。
+ * 移除的item的区域按尺寸放入空闲栈，之后同样尺寸的item直接复用。
+ * 细分格子的像素长度在第一次计算位置时确定，之后内容区域随item的最大尺寸变长也不变，已有的item和新的区域按同样的长度换算
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class SpanPlacementEngine implements PlacementEngine {
+
+    /**
+     * 复用空闲区域时支持的最大跨度(主轴方向的细分格子数)
+     */
+    private static final int MAX_REUSE_SPAN = 8;
+
+    /**
+     * 交叉轴方向上的区域个数
+     */
+    private final int mRows;
+    /**
+     * 每个区域在每个方向上细分的格子数
+     */
+    private final int mSubdivision;
+    /**
+     * 交叉轴方向上的细分格子数
+     */
+    private final int mLanes;
+    /**
+     * 主轴方向上的区域个数
+     */
+    private int mColumns;
+    /**
+     * 第一个细分格子在主轴方向上的下标，在头部扩展时减小
+     */
+    private int mStart;
+    /**
+     * 每条交叉轴格子上已占用的最后一格之后的下标、第一格的下标，没有占用时为Integer.MIN_VALUE
+     */
+    private final int[] mBack;
+    private final int[] mFront;
+    /**
+     * 所有item占用的主轴范围，没有item时无意义
+     */
+    private int mMinFront;
+    private int mMaxBack;
+    private boolean mHasItems;
+    /**
+     * 区域记录，每4个int依次为交叉轴起点、主轴起点、交叉轴跨度、主轴跨度，下标即输出的区域id
+     */
+    private int[] mRegions = new int[0];
+    private int mRegionCount;
+    /**
+     * 区域是否已经释放，重复释放时忽略，重新分配时清除
+     */
+    private boolean[] mReleased = new boolean[0];
+    /**
+     * 空闲的区域id
+     */
+    private int[] mFreeIds = new int[0];
+    private int mFreeIdCount;
+    /**
+     * 按跨度分组的空闲区域id，[交叉轴跨度 - 1][主轴跨度 - 1]
+     */
+    private final int[][][] mFreeRegions;
+    private final int[][] mFreeRegionCounts;
+    /**
+     * 所有跨度的空闲区域个数
+     */
+    private int mFreeRegionTotal;
+    /**
+     * 现有item的个数，用于估算需要的区域
+     */
+    private int mLiveCount;
+    /**
+     * 上一次分配时区域不足
+     */
+    private boolean mShortage;
+    /**
+     * 细分格子在交叉轴、主轴方向上的像素长度，为0表示还没有确定。取整数，头部扩展的长度不会超过内容区域增长的长度
+     */
+    private int mLaneSize;
+    private int mStepSize;
+    /**
+     * 确定格子长度时第一个细分格子的下标，这个格子从内容区域的起点开始
+     */
+    private int mOriginIndex;
+    /**
+     * 确定格子长度之后内容区域在头部增长的累计长度
+     */
+    private int mOffsetX;
+    private int mOffsetY;
+    private long mScannedCount;
+    private Random mRdm = new Random();
+    /**
+     * 天际线查找时复用的数组
+     */
+    private final int[] mCandidates;
+
+    public SpanPlacementEngine() {
+        this(4, 4);
+    }
+
+    /**
+     * @param rowCount    交叉轴方向上的区域个数
+     * @param subdivision 每个区域在每个方向上细分的格子数，越大越贴合item的尺寸
+     */
+    public SpanPlacementEngine(int rowCount, int subdivision) {
+        mRows = rowCount;
+        mSubdivision = Math.max(1, subdivision);
+        mLanes = rowCount * mSubdivision;
+        mBack = new int[mLanes];
+        mFront = new int[mLanes];
+        mCandidates = new int[mLanes];
+        mFreeRegions = new int[mLanes][MAX_REUSE_SPAN][];
+        mFreeRegionCounts = new int[mLanes][MAX_REUSE_SPAN];
+        Arrays.fill(mBack, Integer.MIN_VALUE);
+        Arrays.fill(mFront, Integer.MIN_VALUE);
+    }
+
+    @Override
+    public void reset(long seed) {
+        mRdm = new Random(seed);
+        mColumns = 0;
+        mStart = 0;
+        Arrays.fill(mBack, Integer.MIN_VALUE);
+        Arrays.fill(mFront, Integer.MIN_VALUE);
+        mHasItems = false;
+        mRegionCount = 0;
+        mFreeIdCount = 0;
+        for (int[] counts : mFreeRegionCounts) {
+            Arrays.fill(counts, 0);
+        }
+        mFreeRegionTotal = 0;
+        mLiveCount = 0;
+        mShortage = false;
+        mLaneSize = 0;
+        mStepSize = 0;
+        mOriginIndex = 0;
+        mOffsetX = 0;
+        mOffsetY = 0;
+        mScannedCount = 0;
+    }
+
+    /**
+     * 按已有区域平均占用的主轴长度(包括天际线留下的空洞)估算需要的区域，没有item时按每个item占一个区域估算。
+     * 空闲区域先算作可以复用，尺寸不合适时place会区域不足，上一次分配时区域不足的话至少扩展一列
+     */
+    @Override
+    public int ensureCapacity(int itemCount, boolean addEnd) {
+        int remaining = Math.max(0, itemCount - mLiveCount - mFreeRegionTotal);
+        int regions = mLiveCount + mFreeRegionTotal;
+        int end = mStart + mColumns * mSubdivision;
+        int used;
+        if (!mHasItems) {
+            used = 0;
+        } else if (addEnd) {
+            used = mMaxBack - mStart;
+        } else {
+            used = end - mMinFront;
+        }
+        double stepsPerItem = regions > 0 && used > 0 ? (double) used / regions : (double) mSubdivision / mRows;
+        // 多留一个区域的长度，放下最后几个较大的item
+        long need = used + (long) Math.ceil(remaining * stepsPerItem) + (remaining > 0 ? mSubdivision : 0);
+        int columns = (int) Math.ceil((double) need / mSubdivision);
+        int extend = columns - mColumns;
+        if (mShortage) {
+            extend = Math.max(extend, 1);
+            mShortage = false;
+        }
+        if (extend > 0) {
+            mColumns += extend;
+            if (!addEnd) {
+                mStart -= extend * mSubdivision;
+            }
+        }
+        return mColumns;
+    }
+
+    @Override
+    public int getRowCount() {
+        return mRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return mColumns;
+    }
+
+    @Override
+    public int place(int[] sizes, int count, int orientation, int width, int height, boolean addEnd,
+                     int[] outRects, int[] outCells) {
+        if (mColumns == 0) {
+            return 0;
+        }
+        int crossExtent = orientation == VERTICAL ? width : height;
+        int mainExtent = orientation == VERTICAL ? height : width;
+        if (mStepSize == 0) {
+            mLaneSize = Math.max(1, crossExtent / mLanes);
+            mStepSize = Math.max(1, mainExtent / (mColumns * mSubdivision));
+            mOriginIndex = mStart;
+            mOffsetX = 0;
+            mOffsetY = 0;
+        }
+        int laneSize = mLaneSize;
+        int stepSize = mStepSize;
+        int originOffset = orientation == VERTICAL ? mOffsetY : mOffsetX;
+        for (int i = 0; i < count; i++) {
+            int childCross = orientation == VERTICAL ? sizes[i * 2] : sizes[i * 2 + 1];
+            int childMain = orientation == VERTICAL ? sizes[i * 2 + 1] : sizes[i * 2];
+            int spanCross = Math.max(1, Math.min(mLanes, (childCross + laneSize - 1) / laneSize));
+            int spanMain = Math.max(1, (childMain + stepSize - 1) / stepSize);
+            int id = popFreeRegion(spanCross, spanMain);
+            if (id < 0) {
+                id = allocateRegion(spanCross, spanMain, addEnd);
+                if (id < 0) {
+                    mShortage = true;
+                    return i;
+                }
+            }
+            mLiveCount++;
+
+            // 在区域内随机偏移，加上item的尺寸后不能超出内容区域
+            int base = id * 4;
+            int crossOffset = spanCross * laneSize - childCross;
+            int mainOffset = spanMain * stepSize - childMain;
+            int crossPos = mRegions[base] * laneSize + mRdm.nextInt(Math.max(1, crossOffset));
+            int mainPos = (mRegions[base + 1] - mOriginIndex) * stepSize + originOffset + mRdm.nextInt(Math.max(1, mainOffset));
+            crossPos = Math.max(0, Math.min(crossPos, crossExtent - childCross));
+            mainPos = Math.max(0, Math.min(mainPos, mainExtent - childMain));
+            int left = orientation == VERTICAL ? crossPos : mainPos;
+            int top = orientation == VERTICAL ? mainPos : crossPos;
+            outRects[i * 4] = left;
+            outRects[i * 4 + 1] = top;
+            outRects[i * 4 + 2] = left + sizes[i * 2];
+            outRects[i * 4 + 3] = top + sizes[i * 2 + 1];
+            outCells[i] = id;
+        }
+        return count;
+    }
+
+    /**
+     * 释放区域并按跨度放入空闲栈
+     */
+    @Override
+    public void release(int cell) {
+        if (cell < 0 || cell >= mRegionCount) {
+            return;
+        }
+        if (mReleased[cell]) {
+            // 已经释放过，再放入空闲栈会被两个item同时占用
+            return;
+        }
+        mReleased[cell] = true;
+        int base = cell * 4;
+        int spanCross = mRegions[base + 2];
+        int spanMain = mRegions[base + 3];
+        mLiveCount--;
+        if (spanMain <= MAX_REUSE_SPAN) {
+            int[] stack = mFreeRegions[spanCross - 1][spanMain - 1];
+            int n = mFreeRegionCounts[spanCross - 1][spanMain - 1];
+            if (stack == null || n == stack.length) {
+                stack = stack == null ? new int[8] : Arrays.copyOf(stack, n * 2);
+                mFreeRegions[spanCross - 1][spanMain - 1] = stack;
+            }
+            stack[n] = cell;
+            mFreeRegionCounts[spanCross - 1][spanMain - 1] = n + 1;
+            mFreeRegionTotal++;
+        } else {
+            // 太大的区域不复用，只回收id
+            pushFreeId(cell);
+        }
+    }
+
+    /**
+     * 区域只按下标记录，头部增长的长度累计到换算位置的起点上。还没有确定格子长度时没有位置需要偏移
+     */
+    @Override
+    public void offset(int dx, int dy) {
+        if (mStepSize > 0) {
+            mOffsetX += dx;
+            mOffsetY += dy;
+        }
+    }
+
+    @Override
+    public long getScannedCellCount() {
+        return mScannedCount;
+    }
+
+    /**
+     * @return 同样跨度的空闲区域，没有时返回-1
+     */
+    private int popFreeRegion(int spanCross, int spanMain) {
+        if (spanMain > MAX_REUSE_SPAN) {
+            return -1;
+        }
+        int n = mFreeRegionCounts[spanCross - 1][spanMain - 1];
+        if (n == 0) {
+            return -1;
+        }
+        mScannedCount++;
+        mFreeRegionCounts[spanCross - 1][spanMain - 1] = n - 1;
+        mFreeRegionTotal--;
+        int id = mFreeRegions[spanCross - 1][spanMain - 1][n - 1];
+        mReleased[id] = false;
+        return id;
+    }
+
+    /**
+     * 天际线分配：向后添加时放在已占用部分之后最靠前的位置，向前添加时放在已占用部分之前最靠后的位置
+     *
+     * @return 区域id，放不下时返回-1
+     */
+    private int allocateRegion(int spanCross, int spanMain, boolean addEnd) {
+        int end = mStart + mColumns * mSubdivision;
+        int best = addEnd ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        int candidateCount = 0;
+        for (int lane = 0; lane + spanCross <= mLanes; lane++) {
+            int pos = addEnd ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (int k = lane; k < lane + spanCross; k++) {
+                if (addEnd) {
+                    pos = Math.max(pos, mBack[k] != Integer.MIN_VALUE ? mBack[k] : (mHasItems ? mMinFront : mStart));
+                } else {
+                    pos = Math.min(pos, mFront[k] != Integer.MIN_VALUE ? mFront[k] : (mHasItems ? mMaxBack : end));
+                }
+            }
+            if (!addEnd) {
+                pos -= spanMain;
+            }
+            if (pos == best) {
+                mCandidates[candidateCount++] = lane;
+            } else if (addEnd ? pos < best : pos > best) {
+                best = pos;
+                candidateCount = 0;
+                mCandidates[candidateCount++] = lane;
+            }
+        }
+        mScannedCount += mLanes - spanCross + 1;
+        if (candidateCount == 0 || best < mStart || best + spanMain > end) {
+            return -1;
+        }
+        int lane = mCandidates[mRdm.nextInt(candidateCount)];
+        for (int k = lane; k < lane + spanCross; k++) {
+            if (addEnd) {
+                if (mFront[k] == Integer.MIN_VALUE) {
+                    mFront[k] = best;
+                }
+                mBack[k] = best + spanMain;
+            } else {
+                if (mBack[k] == Integer.MIN_VALUE) {
+                    mBack[k] = best + spanMain;
+                }
+                mFront[k] = best;
+            }
+        }
+        if (mHasItems) {
+            mMinFront = Math.min(mMinFront, best);
+            mMaxBack = Math.max(mMaxBack, best + spanMain);
+        } else {
+            mMinFront = best;
+            mMaxBack = best + spanMain;
+            mHasItems = true;
+        }
+        int id = mFreeIdCount > 0 ? mFreeIds[--mFreeIdCount] : newRegionId();
+        int base = id * 4;
+        mRegions[base] = lane;
+        mRegions[base + 1] = best;
+        mRegions[base + 2] = spanCross;
+        mRegions[base + 3] = spanMain;
+        mReleased[id] = false;
+        return id;
+    }
+
+    private int newRegionId() {
+        if (mRegionCount * 4 == mRegions.length) {
+            mRegions = Arrays.copyOf(mRegions, Math.max(64, mRegions.length * 2));
+            mReleased = Arrays.copyOf(mReleased, mRegions.length / 4);
+        }
+        return mRegionCount++;
+    }
+
+    private void pushFreeId(int id) {
+        if (mFreeIdCount == mFreeIds.length) {
+            mFreeIds = Arrays.copyOf(mFreeIds, Math.max(16, mFreeIdCount * 2));
+        }
+        mFreeIds[mFreeIdCount++] = id;
+    }
+}
@@ -0,0 +1,350 @@
+package com.cw.randomlist;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格哈希，用于快速查询矩形是否重叠以及坐标下的矩形。
+ * 每个矩形只记录在左上角所在的格子里，查询时向左上多查最大矩形尺寸范围内的格子，
+ * 格子大小和区域大小一致时每次查询只涉及常数个格子。
+ * 整体偏移只修改原点，不移动任何矩形。
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+class SpatialHash {
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    /**
+     * 格子的宽高
+     */
+    private int mBucketWidth = 1;
+    private int mBucketHeight = 1;
+    /**
+     * 原点偏移，记录的坐标 = 实际坐标 - 原点
+     */
+    private int mOriginX;
+    private int mOriginY;
+    /**
+     * 记录过的矩形的最大宽高，决定查询时需要多查的格子
+     */
+    private int mMaxWidth;
+    private int mMaxHeight;
+    /**
+     * 格子表（开放寻址），key为格子坐标，value为格子中第一个矩形
+     */
+    private long[] mKeys;
+    private int[] mHeads;
+    private int mBucketCount;
+    /**
+     * 矩形，每4个int依次为left、top、right、bottom
+     */
+    private int[] mRects = new int[0];
+    /**
+     * 矩形对应的id，-1表示已删除
+     */
+    private int[] mIds = new int[0];
+    /**
+     * 同一个格子中的下一个矩形，已删除时为下一个空闲位置
+     */
+    private int[] mNext = new int[0];
+    private int mEntryLimit;
+    private int mFreeHead = -1;
+
+    SpatialHash() {
+        allocateTable(16);
+    }
+
+    /**
+     * 设置格子的宽高，和已有的不同时重新分配所有矩形
+     */
+    void setBucketSize(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width == mBucketWidth && height == mBucketHeight) {
+            return;
+        }
+        mBucketWidth = width;
+        mBucketHeight = height;
+        allocateTable(mKeys.length);
+        for (int entry = 0; entry < mEntryLimit; entry++) {
+            if (mIds[entry] >= 0) {
+                link(entry);
+            }
+        }
+    }
+
+    /**
+     * 按矩形的尺寸调整格子的宽高，和已有的相差两倍以内时不变，避免尺寸小幅变化时反复重新分配所有矩形
+     */
+    void fitBucketSize(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (mBucketWidth * 2 >= width && mBucketWidth <= width * 2
+                && mBucketHeight * 2 >= height && mBucketHeight <= height * 2) {
+            return;
+        }
+        setBucketSize(width, height);
+    }
+
+    int getBucketWidth() {
+        return mBucketWidth;
+    }
+
+    int getBucketHeight() {
+        return mBucketHeight;
+    }
+
+    /**
+     * 记录一个矩形
+     *
+     * @param id 矩形对应的id，不能小于0
+     * @return 矩形的句柄，用于删除和修改id
+     */
+    int add(int id, int left, int top, int right, int bottom) {
+        int entry;
+        if (mFreeHead >= 0) {
+            entry = mFreeHead;
+            mFreeHead = mNext[entry];
+        } else {
+            if (mEntryLimit == mIds.length) {
+                int capacity = Math.max(16, mEntryLimit * 2);
+                mRects = Arrays.copyOf(mRects, capacity * 4);
+                mIds = Arrays.copyOf(mIds, capacity);
+                mNext = Arrays.copyOf(mNext, capacity);
+            }
+            entry = mEntryLimit++;
+        }
+        int base = entry * 4;
+        mRects[base] = left - mOriginX;
+        mRects[base + 1] = top - mOriginY;
+        mRects[base + 2] = right - mOriginX;
+        mRects[base + 3] = bottom - mOriginY;
+        mIds[entry] = id;
+        mMaxWidth = Math.max(mMaxWidth, right - left);
+        mMaxHeight = Math.max(mMaxHeight, bottom - top);
+        link(entry);
+        return entry;
+    }
+
+    /**
+     * 删除矩形
+     *
+     * @param entry add返回的句柄
+     */
+    void remove(int entry) {
+        if (entry < 0 || entry >= mEntryLimit || mIds[entry] < 0) {
+            return;
+        }
+        int slot = findSlot(bucketKey(entry));
+        int prev = -1;
+        int cur = mHeads[slot];
+        while (cur != entry) {
+            prev = cur;
+            cur = mNext[cur];
+        }
+        if (prev < 0) {
+            mHeads[slot] = mNext[entry];
+        } else {
+            mNext[prev] = mNext[entry];
+        }
+        mIds[entry] = -1;
+        mNext[entry] = mFreeHead;
+        mFreeHead = entry;
+    }
+
+    int getId(int entry) {
+        return mIds[entry];
+    }
+
+    void setId(int entry, int id) {
+        mIds[entry] = id;
+    }
+
+    /**
+     * 所有矩形整体偏移
+     */
+    void offset(int dx, int dy) {
+        mOriginX += dx;
+        mOriginY += dy;
+    }
+
+    /**
+     * 是否有矩形和给定的矩形重叠
+     */
+    boolean intersects(int left, int top, int right, int bottom) {
+        left -= mOriginX;
+        top -= mOriginY;
+        right -= mOriginX;
+        bottom -= mOriginY;
+        int fromX = floorDiv(left - mMaxWidth, mBucketWidth);
+        int toX = floorDiv(right, mBucketWidth);
+        int fromY = floorDiv(top - mMaxHeight, mBucketHeight);
+        int toY = floorDiv(bottom, mBucketHeight);
+        for (int bx = fromX; bx <= toX; bx++) {
+            for (int by = fromY; by <= toY; by++) {
+                int slot = findSlot(toKey(bx, by));
+                if (mKeys[slot] == EMPTY_KEY) {
+                    continue;
+                }
+                for (int entry = mHeads[slot]; entry >= 0; entry = mNext[entry]) {
+                    int base = entry * 4;
+                    if (mRects[base] < right && left < mRects[base + 2]
+                            && mRects[base + 1] < bottom && top < mRects[base + 3]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找和给定的矩形重叠的所有矩形
+     *
+     * @param outIds 输出矩形的id，最多输出outIds.length个
+     * @return 重叠的矩形个数，可能大于outIds.length
+     */
+    int query(int left, int top, int right, int bottom, int[] outIds) {
+        left -= mOriginX;
+        top -= mOriginY;
+        right -= mOriginX;
+        bottom -= mOriginY;
+        int found = 0;
+        int toX = floorDiv(right, mBucketWidth);
+        int toY = floorDiv(bottom, mBucketHeight);
+        for (int bx = floorDiv(left - mMaxWidth, mBucketWidth); bx <= toX; bx++) {
+            for (int by = floorDiv(top - mMaxHeight, mBucketHeight); by <= toY; by++) {
+                int slot = findSlot(toKey(bx, by));
+                if (mKeys[slot] == EMPTY_KEY) {
+                    continue;
+                }
+                for (int entry = mHeads[slot]; entry >= 0; entry = mNext[entry]) {
+                    int base = entry * 4;
+                    if (mRects[base] < right && left < mRects[base + 2]
+                            && mRects[base + 1] < bottom && top < mRects[base + 3]) {
+                        if (found < outIds.length) {
+                            outIds[found] = mIds[entry];
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 查找包含坐标的矩形，有多个时返回id最大的（后添加的View绘制在上面）
+     *
+     * @return 矩形的id，没有时返回-1
+     */
+    int findAt(int x, int y) {
+        x -= mOriginX;
+        y -= mOriginY;
+        int found = -1;
+        int toX = floorDiv(x, mBucketWidth);
+        int toY = floorDiv(y, mBucketHeight);
+        for (int bx = floorDiv(x - mMaxWidth, mBucketWidth); bx <= toX; bx++) {
+            for (int by = floorDiv(y - mMaxHeight, mBucketHeight); by <= toY; by++) {
+                int slot = findSlot(toKey(bx, by));
+                if (mKeys[slot] == EMPTY_KEY) {
+                    continue;
+                }
+                for (int entry = mHeads[slot]; entry >= 0; entry = mNext[entry]) {
+                    int base = entry * 4;
+                    if (mRects[base] <= x && x < mRects[base + 2] && mRects[base + 1] <= y && y < mRects[base + 3]) {
+                        found = Math.max(found, mIds[entry]);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 清空所有矩形
+     */
+    void clear() {
+        allocateTable(16);
+        Arrays.fill(mIds, 0, mEntryLimit, -1);
+        mEntryLimit = 0;
+        mFreeHead = -1;
+        mOriginX = 0;
+        mOriginY = 0;
+        mMaxWidth = 0;
+        mMaxHeight = 0;
+    }
+
+    /**
+     * 把矩形加入左上角所在格子的链表头
+     */
+    private void link(int entry) {
+        long key = bucketKey(entry);
+        int slot = findSlot(key);
+        if (mKeys[slot] == EMPTY_KEY) {
+            if ((mBucketCount + 1) * 2 > mKeys.length) {
+                rehash(mKeys.length * 2);
+                slot = findSlot(key);
+            }
+            mKeys[slot] = key;
+            mHeads[slot] = -1;
+            mBucketCount++;
+        }
+        mNext[entry] = mHeads[slot];
+        mHeads[slot] = entry;
+    }
+
+    private long bucketKey(int entry) {
+        int base = entry * 4;
+        return toKey(floorDiv(mRects[base], mBucketWidth), floorDiv(mRects[base + 1], mBucketHeight));
+    }
+
+    private static long toKey(int bx, int by) {
+        return ((long) bx << 32) | (by & 0xffffffffL);
+    }
+
+    /**
+     * @return key所在的位置，不存在时返回应该插入的空位置
+     */
+    private int findSlot(long key) {
+        int mask = mKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (mKeys[slot] != EMPTY_KEY && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocateTable(int capacity) {
+        mKeys = new long[capacity];
+        mHeads = new int[capacity];
+        Arrays.fill(mKeys, EMPTY_KEY);
+        mBucketCount = 0;
+    }
+
+    /**
+     * 扩大格子表，格子中的链表保持不变
+     */
+    private void rehash(int capacity) {
+        long[] keys = mKeys;
+        int[] heads = mHeads;
+        allocateTable(capacity);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                int slot = findSlot(keys[i]);
+                mKeys[slot] = keys[i];
+                mHeads[slot] = heads[i];
+                mBucketCount++;
+            }
+        }
+    }
+
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cw.randomlist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 随机扩展、分配和释放CellAllocator，每一步都用BitSet核对：向后分配取跳过头部空闲区域后最前面的空闲区域，
+ * 向前分配反过来，扩展跨过多个段和释放后的复用也不例外
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class CellAllocatorTest {
+
+    /**
+     * 模型中的下标 = 区域下标 + OFFSET，头部扩展后区域下标可能为负数
+     */
+    private static final int OFFSET = 1 << 20;
+    private static final int ROWS = 4;
+
+    @Test
+    public void matchesBitSetModel() {
+        Random random = new Random(20180514L);
+        CellAllocator allocator = new CellAllocator(ROWS);
+        BitSet used = new BitSet();
+        List<Integer> usedCells = new ArrayList<>();
+        for (int step = 0; step < 20000; step++) {
+            int op = random.nextInt(100);
+            if (op < 5) {
+                // 偶尔扩展很多列，覆盖多个4096个区域的段
+                int extend = random.nextInt(10) == 0 ? 600 + random.nextInt(600) : 1 + random.nextInt(8);
+                allocator.extend(extend, random.nextBoolean());
+            } else if (op < 65) {
+                boolean addEnd = random.nextInt(4) != 0;
+                int cell = addEnd ? allocator.allocateAtEnd() : allocator.allocateAtStart();
+                int expected = addEnd ? firstAllowedAtEnd(allocator, used) : lastAllowedAtStart(allocator, used);
+                if (cell == Integer.MIN_VALUE) {
+                    assertEquals("no free cell expected", Integer.MIN_VALUE, expected);
+                } else {
+                    assertTrue(cell >= allocator.getStart() && cell < allocator.getStart() + allocator.getCellCount());
+                    assertFalse("cell " + cell + " allocated twice", used.get(cell + OFFSET));
+                    assertTrue(isAllowed(allocator, used, cell, addEnd));
+                    used.set(cell + OFFSET);
+                    usedCells.add(cell);
+                }
+            } else if (op < 99 && !usedCells.isEmpty()) {
+                int cell = usedCells.remove(random.nextInt(usedCells.size()));
+                allocator.release(cell);
+                used.clear(cell + OFFSET);
+                // 重复释放被忽略
+                allocator.release(cell);
+            } else if (op == 99) {
+                allocator.clear();
+                used.clear();
+                usedCells.clear();
+            }
+            assertEquals(usedCells.size(), allocator.getUsedCount());
+            if (step % 200 == 0) {
+                verifyState(allocator, used);
+            }
+        }
+        verifyState(allocator, used);
+    }
+
+    @Test
+    public void releasedCellIsReusedFirst() {
+        CellAllocator allocator = new CellAllocator(ROWS);
+        allocator.extend(4, true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, allocator.allocateAtEnd());
+        }
+        allocator.release(5);
+        allocator.release(7);
+        assertEquals(7, allocator.allocateAtEnd());
+        assertEquals(5, allocator.allocateAtEnd());
+        assertEquals(10, allocator.allocateAtEnd());
+    }
+
+    @Test
+    public void extendAtStartKeepsIndices() {
+        CellAllocator allocator = new CellAllocator(ROWS);
+        allocator.extend(2, true);
+        int first = allocator.allocateAtEnd();
+        allocator.extend(3, false);
+        assertEquals(-3 * ROWS, allocator.getStart());
+        assertTrue(allocator.isUsed(first));
+        assertEquals(3 * ROWS, allocator.getStartFree());
+        // 向前添加从已占用部分之前往前分配
+        assertEquals(first - 1, allocator.allocateAtStart());
+    }
+
+    /**
+     * 向后添加时可以使用的区域：没有占用时任意，否则不在第一个已占用的区域之前
+     */
+    private static boolean isAllowed(CellAllocator allocator, BitSet used, int cell, boolean addEnd) {
+        if (used.isEmpty()) {
+            return true;
+        }
+        return addEnd ? cell >= used.nextSetBit(0) - OFFSET : cell <= used.length() - 1 - OFFSET;
+    }
+
+    private static int firstAllowedAtEnd(CellAllocator allocator, BitSet used) {
+        int start = allocator.getStart();
+        int from = used.isEmpty() ? start : Math.max(start, used.nextSetBit(0) - OFFSET);
+        int cell = used.nextClearBit(from + OFFSET) - OFFSET;
+        return cell < start + allocator.getCellCount() ? cell : Integer.MIN_VALUE;
+    }
+
+    private static int lastAllowedAtStart(CellAllocator allocator, BitSet used) {
+        int start = allocator.getStart();
+        int end = start + allocator.getCellCount();
+        int from = used.isEmpty() ? end - 1 : Math.min(end - 1, used.length() - 1 - OFFSET);
+        int cell = used.previousClearBit(from + OFFSET) - OFFSET;
+        return cell >= start ? cell : Integer.MIN_VALUE;
+    }
+
+    private static void verifyState(CellAllocator allocator, BitSet used) {
+        int start = allocator.getStart();
+        int end = start + allocator.getCellCount();
+        for (int cell = start; cell < end; cell++) {
+            assertEquals("cell " + cell, used.get(cell + OFFSET), allocator.isUsed(cell));
+        }
+        assertEquals(used.cardinality(), allocator.getUsedCount());
+        if (!used.isEmpty()) {
+            assertEquals(used.nextSetBit(0) - OFFSET - start, allocator.getStartFree());
+            assertEquals(end - 1 - (used.length() - 1 - OFFSET), allocator.getEndFree());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.cw.randomlist;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ListDiffer.calculateDiff：按顺序把通知应用到旧列表上必须得到新列表，内容变化的通知正好是内容不同的item
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class ListDifferTest {
+
+    private static final ListDiffer.ItemCallback<Item> CALLBACK = new ListDiffer.ItemCallback<Item>() {
+        @Override
+        public long getItemId(Item item) {
+            return item.mId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(Item oldItem, Item newItem) {
+            return oldItem.mContent == newItem.mContent;
+        }
+    };
+
+    @Test
+    public void singleMoveIsOneUpdate() {
+        List<Item> oldList = items(1, 2, 3, 4, 5);
+        List<Item> newList = items(1, 3, 4, 2, 5);
+        ListDiffer.DiffResult result = verify(oldList, newList);
+        assertEquals(1, result.getUpdateCount());
+    }
+
+    @Test
+    public void reversedList() {
+        verify(items(1, 2, 3, 4, 5, 6, 7), items(7, 6, 5, 4, 3, 2, 1));
+    }
+
+    @Test
+    public void insertRemoveAndChange() {
+        List<Item> oldList = items(1, 2, 3, 4, 5);
+        List<Item> newList = items(0, 1, 3, 6, 5);
+        newList.get(4).mContent = 1;
+        ListDiffer.DiffResult result = verify(oldList, newList);
+        // 移除2、4，插入0、6，5的内容变化
+        assertEquals(5, result.getUpdateCount());
+    }
+
+    @Test
+    public void emptySides() {
+        verify(items(), items(1, 2, 3));
+        verify(items(1, 2, 3), items());
+    }
+
+    @Test
+    public void randomEditsMatchNewList() {
+        Random random = new Random(20180514L);
+        for (int round = 0; round < 500; round++) {
+            int size = random.nextInt(60);
+            List<Item> oldList = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                oldList.add(new Item(i, 0));
+            }
+            List<Item> newList = new ArrayList<>();
+            for (Item item : oldList) {
+                if (random.nextInt(5) != 0) {
+                    newList.add(new Item(item.mId, random.nextInt(6) == 0 ? 1 : 0));
+                }
+            }
+            int inserted = random.nextInt(10);
+            for (int i = 0; i < inserted; i++) {
+                newList.add(random.nextInt(newList.size() + 1), new Item(1000 + i, 0));
+            }
+            int moves = random.nextInt(8);
+            for (int i = 0; i < moves && !newList.isEmpty(); i++) {
+                Item item = newList.remove(random.nextInt(newList.size()));
+                newList.add(random.nextInt(newList.size() + 1), item);
+            }
+            if (random.nextInt(10) == 0) {
+                Collections.shuffle(newList, random);
+            }
+            verify(oldList, newList);
+        }
+    }
+
+    @Test
+    public void duplicateIdsMatchNewList() {
+        verify(items(1, 1, 2, 2, 3), items(2, 1, 3, 2, 1));
+    }
+
+    /**
+     * 应用比较结果并检查得到的列表和内容变化
+     */
+    private static ListDiffer.DiffResult verify(List<Item> oldList, List<Item> newList) {
+        ListDiffer.DiffResult result = ListDiffer.calculateDiff(oldList, newList, CALLBACK);
+        ApplyingAdapter adapter = new ApplyingAdapter(oldList, newList);
+        result.dispatchTo(adapter);
+        List<Long> expected = new ArrayList<>();
+        for (Item item : newList) {
+            expected.add(item.mId);
+        }
+        List<Long> actual = new ArrayList<>();
+        for (Item item : adapter.mList) {
+            actual.add(item.mId);
+        }
+        assertEquals(expected, actual);
+        for (int j = 0; j < newList.size(); j++) {
+            Item current = adapter.mList.get(j);
+            boolean changed = current != newList.get(j) && current.mContent != newList.get(j).mContent;
+            assertEquals("position " + j, changed, adapter.mChanged.contains(j));
+        }
+        return result;
+    }
+
+    private static List<Item> items(long... ids) {
+        List<Item> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(new Item(id, 0));
+        }
+        return list;
+    }
+
+    private static class Item {
+        private final long mId;
+        private int mContent;
+
+        Item(long id, int content) {
+            mId = id;
+            mContent = content;
+        }
+
+        @Override
+        public String toString() {
+            return mId + "/" + mContent;
+        }
+    }
+
+    /**
+     * 按收到的通知修改旧列表的副本，插入的item从新列表中取
+     */
+    private static class ApplyingAdapter extends RandomAdapter {
+        private final List<Item> mList;
+        private final List<Item> mNewList;
+        private final Set<Integer> mChanged = new HashSet<>();
+
+        ApplyingAdapter(List<Item> oldList, List<Item> newList) {
+            mList = new ArrayList<>(oldList);
+            mNewList = newList;
+        }
+
+        @Override
+        public int getCount() {
+            return mList.size();
+        }
+
+        @Override
+        public View getView(Context context, int position, View convertView) {
+            return convertView;
+        }
+
+        @Override
+        public void notifyItemRangeInserted(int positionStart, int itemCount) {
+            assertTrue(positionStart >= 0 && positionStart <= mList.size());
+            for (int i = 0; i < itemCount; i++) {
+                mList.add(positionStart + i, mNewList.get(positionStart + i));
+            }
+        }
+
+        @Override
+        public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+            assertTrue(positionStart >= 0 && positionStart + itemCount <= mList.size());
+            mList.subList(positionStart, positionStart + itemCount).clear();
+        }
+
+        @Override
+        public void notifyItemMoved(int fromPosition, int toPosition) {
+            assertTrue(Arrays.toString(new int[]{fromPosition, toPosition}),
+                    fromPosition >= 0 && fromPosition < mList.size() && toPosition >= 0 && toPosition < mList.size());
+            mList.add(toPosition, mList.remove(fromPosition));
+        }
+
+        @Override
+        public void notifyItemRangeChanged(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mChanged.add(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.cw.randomlist;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PagedAdapter的加载、占位和丢弃。工作线程和主线程都替换为可控的Executor，不依赖Looper
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PagedAdapterTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private TestSource mSource;
+    private QueueExecutor mWorker;
+    private QueueExecutor mMainThread;
+    private TestAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mSource = new TestSource(35);
+        mWorker = new QueueExecutor();
+        mMainThread = new QueueExecutor();
+        mAdapter = new TestAdapter(mSource);
+        mAdapter.setExecutor(mWorker);
+        mAdapter.setMainThreadExecutor(mMainThread);
+    }
+
+    @Test
+    public void firstPageIsPlaceholderUntilLoaded() {
+        mAdapter.reload();
+        assertEquals(PAGE_SIZE, mAdapter.getCount());
+        assertTrue(mAdapter.isPlaceholder(0));
+
+        mWorker.runAll();
+        // 加载结果要切回主线程后才应用
+        assertTrue(mAdapter.isPlaceholder(0));
+        mMainThread.runAll();
+        assertEquals("0-0", mAdapter.getItem(0));
+        assertEquals("0-9", mAdapter.getItem(9));
+    }
+
+    @Test
+    public void approachingEndAppendsPages() {
+        loadAll();
+        mAdapter.onVisibleRangeChanged(0, 5);
+        loadAll();
+        assertEquals(PAGE_SIZE * 2, mAdapter.getCount());
+        assertEquals("1-0", mAdapter.getItem(10));
+    }
+
+    @Test
+    public void shortLastPageRemovesExtraPlaceholders() {
+        loadAll();
+        for (int max = 0; max < 60 && !mAdapter.isEndReached(); max += 5) {
+            mAdapter.onVisibleRangeChanged(Math.max(0, max - 5), Math.min(max, mAdapter.getCount() - 1));
+            loadAll();
+        }
+        assertTrue(mAdapter.isEndReached());
+        assertEquals(35, mAdapter.getCount());
+        assertEquals("3-4", mAdapter.getItem(34));
+    }
+
+    @Test
+    public void failedPageStaysPlaceholderAndRetries() {
+        mSource.mFailingPages.add(0);
+        loadAll();
+        assertEquals(1, mAdapter.mFailures);
+        assertTrue(mAdapter.isPlaceholder(0));
+
+        mSource.mFailingPages.clear();
+        mAdapter.onVisibleRangeChanged(0, 3);
+        loadAll();
+        assertFalse(mAdapter.isPlaceholder(0));
+    }
+
+    @Test
+    public void reloadDropsStaleResults() {
+        mAdapter.reload();
+        mWorker.runAll();
+        mSource.mPrefix = "new";
+        // 第一次加载的结果还没有切回主线程就重新加载
+        mAdapter.reload();
+        mWorker.runAll();
+        mMainThread.runAll();
+        assertEquals("new0-0", mAdapter.getItem(0));
+        assertEquals(PAGE_SIZE, mAdapter.getCount());
+    }
+
+    @Test
+    public void farthestPageIsDroppedOverLimit() {
+        mAdapter.setMaxLoadedPages(2);
+        mAdapter.setPrefetchDistance(1);
+        loadAll();
+        mAdapter.onVisibleRangeChanged(5, 9);
+        loadAll();
+        mAdapter.onVisibleRangeChanged(15, 19);
+        loadAll();
+        // 加载第2页后超出上限，离可见范围最远的第0页被丢弃
+        assertEquals(PAGE_SIZE * 3, mAdapter.getCount());
+        assertNull(mAdapter.getItem(0));
+        assertEquals("1-5", mAdapter.getItem(15));
+        assertEquals("2-0", mAdapter.getItem(20));
+
+        mAdapter.onVisibleRangeChanged(0, 4);
+        loadAll();
+        assertEquals("0-0", mAdapter.getItem(0));
+        assertNull(mAdapter.getItem(20));
+    }
+
+    @Test
+    public void pagesWithinPrefetchDistanceAreKept() {
+        // 加载距离覆盖3页，上限只有2页时也不能反复丢弃和重新加载
+        mAdapter.setMaxLoadedPages(2);
+        loadAll();
+        mAdapter.onVisibleRangeChanged(5, 9);
+        loadAll();
+        mAdapter.onVisibleRangeChanged(15, 19);
+        loadAll();
+        assertEquals("0-0", mAdapter.getItem(0));
+        assertEquals("1-0", mAdapter.getItem(10));
+        assertEquals("2-0", mAdapter.getItem(20));
+    }
+
+    private void loadAll() {
+        if (mAdapter.getCount() == 0) {
+            mAdapter.reload();
+        }
+        while (!mWorker.isEmpty() || !mMainThread.isEmpty()) {
+            mWorker.runAll();
+            mMainThread.runAll();
+        }
+    }
+
+    /**
+     * 提交的任务先保存，手动执行
+     */
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        boolean isEmpty() {
+            return mTasks.isEmpty();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+
+    /**
+     * 共total条数据，item为"页码-页内下标"
+     */
+    private static class TestSource implements PagedDataSource<String> {
+        private final int mTotal;
+        private final Set<Integer> mFailingPages = new HashSet<>();
+        private String mPrefix = "";
+
+        TestSource(int total) {
+            mTotal = total;
+        }
+
+        @Override
+        public List<String> loadPage(int page, int pageSize) throws Exception {
+            if (mFailingPages.contains(page)) {
+                throw new Exception("page " + page);
+            }
+            List<String> items = new ArrayList<>();
+            for (int i = page * pageSize; i < Math.min(mTotal, (page + 1) * pageSize); i++) {
+                items.add(mPrefix + page + "-" + (i - page * pageSize));
+            }
+            return items;
+        }
+    }
+
+    private static class TestAdapter extends PagedAdapter<String> {
+        private int mFailures;
+
+        TestAdapter(PagedDataSource<String> source) {
+            super(source, PAGE_SIZE);
+        }
+
+        @Override
+        public View getView(Context context, int position, String item, View convertView) {
+            return convertView;
+        }
+
+        @Override
+        protected void onPageLoadFailed(int page, Exception error) {
+            mFailures++;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.cw.randomlist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 两种位置计算引擎：确定的位置不重叠、不超出内容区域，释放的区域可以复用，同一个seed结果相同。
+ * 和RandomLayout一致，区域不足时扩展后继续，内容区域的长度为主轴区域个数 * 最大尺寸 * 1.2
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class PlacementEngineTest {
+
+    private static final long SEED = 20180514L;
+    private static final int CROSS_EXTENT = 1080;
+    private static final int MAX_SIZE = 100;
+    private static final int MIN_SIZE = 40;
+
+    @Test
+    public void gridAppendDoesNotOverlap() {
+        verifyNoOverlap(new GridPlacementEngine(), true);
+    }
+
+    @Test
+    public void gridPrependDoesNotOverlap() {
+        verifyNoOverlap(new GridPlacementEngine(), false);
+    }
+
+    @Test
+    public void spanAppendDoesNotOverlap() {
+        verifyNoOverlap(new SpanPlacementEngine(), true);
+    }
+
+    @Test
+    public void spanPrependDoesNotOverlap() {
+        verifyNoOverlap(new SpanPlacementEngine(), false);
+    }
+
+    @Test
+    public void gridReusesReleasedCells() {
+        verifyReuse(new GridPlacementEngine());
+    }
+
+    @Test
+    public void spanReusesReleasedRegions() {
+        verifyReuse(new SpanPlacementEngine());
+    }
+
+    @Test
+    public void gridIsDeterministic() {
+        verifyDeterministic(new GridPlacementEngine(), new GridPlacementEngine());
+    }
+
+    @Test
+    public void spanIsDeterministic() {
+        verifyDeterministic(new SpanPlacementEngine(), new SpanPlacementEngine());
+    }
+
+    @Test
+    public void spanIgnoresRepeatedRelease() {
+        Harness harness = new Harness(new SpanPlacementEngine(), true, SEED);
+        harness.placeAll(uniformSizes(20, MAX_SIZE));
+        int cell = harness.mCells.get(3);
+        harness.release(3);
+        harness.mEngine.release(cell);
+        harness.placeAll(uniformSizes(2, MAX_SIZE));
+        // 重复释放的区域只能被复用一次
+        assertEquals(1, countCell(harness, cell));
+        harness.assertNoOverlap();
+    }
+
+    @Test
+    public void gridFallsBackWhenCellsAreCrowded() {
+        // 区域比item小很多时随机的位置几乎都会重叠，必须换区域或者扩展，不能保留重叠的位置
+        GridPlacementEngine engine = new GridPlacementEngine(12);
+        Harness harness = new Harness(engine, true, SEED);
+        harness.placeAll(uniformSizes(200, MAX_SIZE));
+        harness.assertNoOverlap();
+    }
+
+    @Test
+    public void gridKeepsApartWhenItemsGrow() {
+        verifyGrowingItems(new GridPlacementEngine(), true);
+        verifyGrowingItems(new GridPlacementEngine(), false);
+    }
+
+    @Test
+    public void spanKeepsApartWhenItemsGrow() {
+        verifyGrowingItems(new SpanPlacementEngine(), true);
+        verifyGrowingItems(new SpanPlacementEngine(), false);
+    }
+
+    @Test
+    public void gridDoesNotRetryCrowdedCells() {
+        // 放不下的区域搁置后不再分配给之后的item，每个区域最多被取出一次，查找的次数和区域总数成正比
+        GridPlacementEngine engine = new GridPlacementEngine(12);
+        Harness harness = new Harness(engine, true, SEED);
+        harness.placeAll(uniformSizes(400, MAX_SIZE));
+        long cells = (long) engine.getColumnCount() * engine.getRowCount();
+        assertTrue(engine.getScannedCellCount() <= cells * 2);
+        harness.assertNoOverlap();
+    }
+
+    @Test
+    public void gridReturnsDeferredCellsAfterRelease() {
+        // 周围的item释放后搁置的区域重新可用，几乎占满所有区域也不需要扩展
+        GridPlacementEngine engine = new GridPlacementEngine(12);
+        Harness harness = new Harness(engine, true, SEED);
+        harness.placeAll(uniformSizes(400, MAX_SIZE));
+        int columns = engine.getColumnCount();
+        for (int i = harness.size() - 2; i > 0; i--) {
+            harness.release(i);
+        }
+        assertEquals(columns, engine.ensureCapacity(columns * engine.getRowCount() - 100, true));
+    }
+
+    private static void verifyNoOverlap(PlacementEngine engine, boolean addEnd) {
+        Random random = new Random(SEED);
+        Harness harness = new Harness(engine, addEnd, SEED);
+        for (int batch = 0; batch < 10; batch++) {
+            harness.placeAll(randomSizes(random, 10 + random.nextInt(60)));
+        }
+        harness.assertNoOverlap();
+        harness.assertInsideContent();
+    }
+
+    private static void verifyReuse(PlacementEngine engine) {
+        Random random = new Random(SEED);
+        Harness harness = new Harness(engine, true, SEED);
+        harness.placeAll(uniformSizes(300, MAX_SIZE));
+        int columns = engine.getColumnCount();
+        Set<Integer> released = new HashSet<>();
+        // 第一个和最后一个item保留，向后添加时不复用已占用部分之前的区域
+        for (int i = harness.size() - 2; i > 0; i--) {
+            if (random.nextBoolean()) {
+                released.add(harness.mCells.get(i));
+                harness.release(i);
+            }
+        }
+        int count = released.size();
+        int before = harness.size();
+        harness.placeAll(uniformSizes(count, MAX_SIZE));
+        // 同样尺寸的item直接放进释放的区域，不需要扩展
+        assertEquals(columns, engine.getColumnCount());
+        for (int i = before; i < harness.size(); i++) {
+            assertTrue(released.contains(harness.mCells.get(i)));
+        }
+        harness.assertNoOverlap();
+        harness.assertUniqueCells();
+    }
+
+    /**
+     * 每批之间释放约1/4的item，最大尺寸逐批变大，内容区域跟着变长，已有的item保持原来的位置
+     */
+    private static void verifyGrowingItems(PlacementEngine engine, boolean addEnd) {
+        for (long seed = 1; seed <= 30; seed++) {
+            Random random = new Random(seed);
+            Harness harness = new Harness(engine, addEnd, seed);
+            int[] maxSizes = {100, 160, 220};
+            for (int maxSize : maxSizes) {
+                harness.mMaxSize = maxSize;
+                for (int i = harness.size() - 1; i >= 0; i--) {
+                    if (random.nextInt(4) == 0) {
+                        harness.release(i);
+                    }
+                }
+                int[] sizes = new int[60 * 2];
+                for (int i = 0; i < sizes.length; i++) {
+                    sizes[i] = MIN_SIZE + random.nextInt(maxSize - MIN_SIZE + 1);
+                }
+                harness.placeAll(sizes);
+            }
+            harness.assertNoOverlap();
+            harness.assertInsideContent();
+        }
+    }
+
+    private static void verifyDeterministic(PlacementEngine first, PlacementEngine second) {
+        Harness a = new Harness(first, true, SEED);
+        Harness b = new Harness(second, true, SEED);
+        Random random = new Random(SEED);
+        for (int batch = 0; batch < 5; batch++) {
+            int[] sizes = randomSizes(random, 50);
+            a.placeAll(sizes);
+            b.placeAll(sizes);
+        }
+        assertEquals(a.size(), b.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertArrayEquals(a.mRects.get(i), b.mRects.get(i));
+        }
+    }
+
+    private static int countCell(Harness harness, int cell) {
+        int count = 0;
+        for (int c : harness.mCells) {
+            if (c == cell) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] randomSizes(Random random, int count) {
+        int[] sizes = new int[count * 2];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = MIN_SIZE + random.nextInt(MAX_SIZE - MIN_SIZE + 1);
+        }
+        return sizes;
+    }
+
+    private static int[] uniformSizes(int count, int size) {
+        int[] sizes = new int[count * 2];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = size;
+        }
+        return sizes;
+    }
+
+    /**
+     * 按RandomLayout的方式调用引擎，记录所有现有item的位置(内容区域坐标)和区域
+     */
+    private static class Harness {
+        private final PlacementEngine mEngine;
+        private final boolean mAddEnd;
+        private final List<int[]> mRects = new ArrayList<>();
+        private final List<Integer> mCells = new ArrayList<>();
+        /**
+         * item的最大尺寸，和RandomLayout一样决定内容区域的长度
+         */
+        private int mMaxSize = MAX_SIZE;
+        private int mMainExtent;
+
+        Harness(PlacementEngine engine, boolean addEnd, long seed) {
+            mEngine = engine;
+            mAddEnd = addEnd;
+            engine.reset(seed);
+        }
+
+        int size() {
+            return mRects.size();
+        }
+
+        void placeAll(int[] sizes) {
+            int count = sizes.length / 2;
+            int[] rects = new int[count * 4];
+            int[] cells = new int[count];
+            int placed = 0;
+            int rounds = 0;
+            while (placed < count) {
+                int columns = mEngine.ensureCapacity(size() + count - placed, mAddEnd);
+                int extent = columns * mMaxSize * 12 / 10;
+                if (!mAddEnd && extent > mMainExtent) {
+                    // 向前添加时头部增长，已有的位置整体后移
+                    int delta = extent - mMainExtent;
+                    for (int[] rect : mRects) {
+                        rect[1] += delta;
+                        rect[3] += delta;
+                    }
+                    mEngine.offset(0, delta);
+                }
+                mMainExtent = extent;
+                int[] remaining = new int[(count - placed) * 2];
+                System.arraycopy(sizes, placed * 2, remaining, 0, remaining.length);
+                int n = mEngine.place(remaining, count - placed, PlacementEngine.VERTICAL, CROSS_EXTENT, mMainExtent,
+                        mAddEnd, rects, cells);
+                for (int i = 0; i < n; i++) {
+                    mRects.add(new int[]{rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3]});
+                    mCells.add(cells[i]);
+                }
+                placed += n;
+                assertTrue("engine did not grow", ++rounds < 100);
+            }
+        }
+
+        void release(int index) {
+            mEngine.release(mCells.remove(index));
+            mRects.remove(index);
+        }
+
+        void assertNoOverlap() {
+            for (int i = 0; i < mRects.size(); i++) {
+                int[] a = mRects.get(i);
+                for (int j = i + 1; j < mRects.size(); j++) {
+                    int[] b = mRects.get(j);
+                    boolean overlap = a[0] < b[2] && b[0] < a[2] && a[1] < b[3] && b[1] < a[3];
+                    assertFalse("items " + i + " and " + j + " overlap", overlap);
+                }
+            }
+        }
+
+        void assertInsideContent() {
+            for (int[] rect : mRects) {
+                assertTrue(rect[0] >= 0 && rect[2] <= CROSS_EXTENT);
+                assertTrue(rect[1] >= 0 && rect[3] <= mMainExtent);
+            }
+        }
+
+        void assertUniqueCells() {
+            assertEquals(mCells.size(), new HashSet<>(mCells).size());
+        }
+    }
+}
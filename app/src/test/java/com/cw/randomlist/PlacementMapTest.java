@@ -0,0 +1,107 @@
+package com.cw.randomlist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PlacementMap按id保存的放置记录：随机写入、覆盖和删除之后每个id取出的值都和HashMap中的相同，
+ * 删除后整理过的探测链和扩容都不会丢失记录
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class PlacementMapTest {
+
+    @Test
+    public void matchesHashMapModel() {
+        Random random = new Random(20180514L);
+        PlacementMap map = new PlacementMap();
+        Map<Long, int[]> model = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+        int[] out = new int[PlacementMap.VALUE_SIZE];
+        for (int step = 0; step < 50000; step++) {
+            int op = random.nextInt(100);
+            // id集中在较小的范围内，制造覆盖和哈希冲突，也包括负数和很大的id
+            long id = random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(2000) - 100;
+            if (op < 50) {
+                int[] values = new int[PlacementMap.VALUE_SIZE];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt();
+                }
+                map.put(id, values);
+                if (model.put(id, values) == null) {
+                    keys.add(id);
+                }
+            } else if (op < 95) {
+                if (!keys.isEmpty() && random.nextBoolean()) {
+                    id = keys.get(random.nextInt(keys.size()));
+                }
+                int[] expected = model.remove(id);
+                boolean removed = map.remove(id, out);
+                assertEquals(expected != null, removed);
+                if (expected != null) {
+                    assertArrayEquals(expected, out);
+                    keys.remove(id);
+                }
+            } else if (op == 95) {
+                map.clear();
+                model.clear();
+                keys.clear();
+            }
+            assertEquals(model.size(), map.size());
+            if (step % 500 == 0) {
+                verifySlots(map, model);
+            }
+        }
+        verifySlots(map, model);
+        for (Map.Entry<Long, int[]> entry : model.entrySet()) {
+            assertTrue(map.remove(entry.getKey(), out));
+            assertArrayEquals(entry.getValue(), out);
+        }
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void removeMissingKeepsOutput() {
+        PlacementMap map = new PlacementMap();
+        int[] out = new int[PlacementMap.VALUE_SIZE];
+        out[PlacementMap.CELL] = 7;
+        assertFalse(map.remove(1, out));
+        assertEquals(7, out[PlacementMap.CELL]);
+    }
+
+    /**
+     * 遍历槽位得到的记录和模型中的记录相同
+     */
+    private static void verifySlots(PlacementMap map, Map<Long, int[]> model) {
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int[] values : model.values()) {
+            increment(expected, values[PlacementMap.CELL]);
+        }
+        Map<Integer, Integer> actual = new HashMap<>();
+        int used = 0;
+        for (int slot = 0; slot < map.slotCount(); slot++) {
+            if (map.isSlotUsed(slot)) {
+                used++;
+                increment(actual, map.getValue(slot, PlacementMap.CELL));
+            }
+        }
+        assertEquals(model.size(), used);
+        assertEquals(expected, actual);
+    }
+
+    private static void increment(Map<Integer, Integer> counts, int key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+}
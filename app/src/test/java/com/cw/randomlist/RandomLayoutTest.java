@@ -0,0 +1,458 @@
+package com.cw.randomlist;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RandomLayout挂在View树中的行为：虚拟化挂载和回收、数据变化后View和item的对应、边缘缩放、
+ * 测量次数、预取、payload、稳定id和触摸分发
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RandomLayoutTest {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 600;
+    private static final int ITEM_SIZE = 100;
+    private static final long SEED = 20180502L;
+
+    private FrameLayout mParent;
+    private RandomLayout mLayout;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mParent = new FrameLayout(activity);
+        mParent.setLayoutParams(new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        activity.setContentView(mParent);
+        mLayout = new RandomLayout(activity);
+        mLayout.setOrientation(ScrollViewGroup.VERTICAL);
+        mLayout.setSeed(SEED);
+    }
+
+    @Test
+    public void virtualizedAttachesOnlyItemsNearViewport() {
+        TestAdapter adapter = new TestAdapter(300, false);
+        mLayout.setVirtualized(true);
+        mLayout.setPrefetchEnabled(false);
+        show(adapter);
+        assertTrue(mLayout.getChildCount() > 0);
+        assertTrue(mLayout.getChildCount() < 300);
+        assertViewsMatchItems(adapter);
+
+        // 滚动到很远的位置，离开的View被回收给新进入的item
+        int created = adapter.mCreated;
+        mLayout.scrollTo(0, mLayout.getHeight() - HEIGHT);
+        idle();
+        assertViewsMatchItems(adapter);
+        assertTrue(adapter.mCreated - created < mLayout.getChildCount());
+    }
+
+    @Test
+    public void refreshWithStableIdsKeepsViewsOnTheirItems() {
+        TestAdapter adapter = new TestAdapter(40, true);
+        show(adapter);
+        Rect kept = new Rect();
+        mLayout.getItemRect(30, kept);
+
+        // 整体刷新时移除前面的item，按id找回的item的View不再和子View的下标对应
+        adapter.removeRange(0, 10);
+        adapter.notifyDataSetChanged();
+        layout();
+        assertEquals(30, mLayout.getChildCount());
+        assertViewsMatchItems(adapter);
+        Rect rect = new Rect();
+        mLayout.getItemRect(20, rect);
+        assertEquals(kept.left, rect.left);
+        assertEquals(kept.top, rect.top);
+
+        // 按position找到的View是item对应的View
+        ItemView view = findView(adapter, 20);
+        int binds = view.mBindCount;
+        adapter.notifyItemRangeChanged(20, 1);
+        assertEquals(binds + 1, view.mBindCount);
+        assertEquals(20, view.mPosition);
+    }
+
+    @Test
+    public void movedItemKeepsItsView() {
+        TestAdapter adapter = new TestAdapter(40, false);
+        show(adapter);
+        ItemView moved = findView(adapter, 2);
+        adapter.move(2, 30);
+        adapter.notifyItemMoved(2, 30);
+        adapter.notifyItemRangeChanged(30, 1);
+        assertEquals(30, moved.mPosition);
+        assertViewsMatchItems(adapter);
+
+        adapter.removeRange(0, 5);
+        adapter.notifyItemRangeRemoved(0, 5);
+        idle();
+        adapter.notifyItemRangeChanged(25, 1);
+        assertEquals(25, moved.mPosition);
+        assertEquals(35, mLayout.getChildCount());
+        assertViewsMatchItems(adapter);
+    }
+
+    @Test
+    public void dataChangesRemapAttachedViews() {
+        TestAdapter adapter = new TestAdapter(200, false);
+        mLayout.setVirtualized(true);
+        show(adapter);
+        ItemView first = findView(adapter, 0);
+
+        adapter.insert(0, 5);
+        adapter.notifyItemRangeInserted(0, 5);
+        layout();
+        assertViewsMatchItems(adapter);
+        assertEquals(5, adapter.mIds.indexOf(first.mId));
+
+        adapter.removeRange(1, 3);
+        adapter.notifyItemRangeRemoved(1, 3);
+        idle();
+        assertViewsMatchItems(adapter);
+        assertEquals(2, adapter.mIds.indexOf(first.mId));
+
+        adapter.move(2, 0);
+        adapter.notifyItemMoved(2, 0);
+        idle();
+        assertViewsMatchItems(adapter);
+        // 按新的position找到的仍然是原来的View
+        int binds = first.mBindCount;
+        adapter.notifyItemRangeChanged(0, 1);
+        assertEquals(binds + 1, first.mBindCount);
+        assertEquals(0, first.mPosition);
+    }
+
+    @Test
+    public void edgeScaleFollowsScroll() {
+        TestAdapter adapter = new TestAdapter(200, false);
+        mLayout.setVirtualized(true);
+        mLayout.setEdgeMinScale(0.5f);
+        show(adapter);
+        for (int scroll = 0; scroll < mLayout.getHeight() - HEIGHT; scroll += 37) {
+            mLayout.scrollTo(0, scroll);
+            idle();
+            assertScaledOnlyAtEdges(adapter, scroll, scroll + HEIGHT);
+        }
+        // 往回滚动时离开边缘的item恢复原大小
+        for (int scroll = mLayout.getScrollY(); scroll >= 0; scroll -= 53) {
+            mLayout.scrollTo(0, scroll);
+            idle();
+            assertScaledOnlyAtEdges(adapter, scroll, scroll + HEIGHT);
+        }
+    }
+
+    @Test
+    public void measuresEachItemOnce() {
+        TestAdapter adapter = new TestAdapter(30, false);
+        adapter.mWrapContent = true;
+        show(adapter);
+        assertEquals(30, mLayout.getChildCount());
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            assertEquals(1, ((ItemView) mLayout.getChildAt(i)).mMeasureCount);
+        }
+    }
+
+    @Test
+    public void prefetchedViewsAreAttachedWithoutBinding() {
+        TestAdapter adapter = new TestAdapter(300, false);
+        mLayout.setVirtualized(true);
+        show(adapter);
+        mLayout.scrollTo(0, 10);
+        int binds = adapter.mBinds;
+        mLayout.prefetch(Long.MAX_VALUE);
+        int prefetched = adapter.mBinds - binds;
+        assertTrue(prefetched > 0);
+
+        // 滚动一屏，进入可见区域的item优先使用预取的View
+        List<View> attached = new ArrayList<>();
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            attached.add(mLayout.getChildAt(i));
+        }
+        binds = adapter.mBinds;
+        mLayout.scrollBy(0, HEIGHT);
+        int entered = 0;
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            if (!attached.contains(mLayout.getChildAt(i))) {
+                entered++;
+            }
+        }
+        int bound = adapter.mBinds - binds;
+        assertTrue(bound < entered);
+        assertEquals(entered, bound + prefetched);
+        assertViewsMatchItems(adapter);
+    }
+
+    @Test
+    public void payloadUpdatesViewInPlace() {
+        TestAdapter adapter = new TestAdapter(20, false);
+        show(adapter);
+        ItemView view = findView(adapter, 7);
+        int binds = view.mBindCount;
+        int measures = view.mMeasureCount;
+
+        // adapter处理了payload时不重新绑定，也不请求整个布局
+        adapter.notifyItemChanged(7, "star");
+        assertEquals("star", view.mPayload);
+        assertEquals(binds, view.mBindCount);
+        assertEquals(measures, view.mMeasureCount);
+        assertTrue(!mLayout.isLayoutRequested());
+
+        // 不能局部更新的payload和没有payload一样重新绑定
+        adapter.notifyItemChanged(7, 42);
+        assertEquals(binds + 1, view.mBindCount);
+        assertViewsMatchItems(adapter);
+    }
+
+    @Test
+    public void stableIdsKeepPlacementWhenReinsertedInSameBatch() {
+        TestAdapter adapter = new TestAdapter(30, true);
+        show(adapter);
+        List<Rect> rects = new ArrayList<>();
+        for (int position = 3; position < 6; position++) {
+            Rect rect = new Rect();
+            assertTrue(mLayout.getItemRect(position, rect));
+            rects.add(rect);
+        }
+
+        // 同一批数据变化中移除后在别处重新插入，item回到原来的位置
+        List<Long> ids = new ArrayList<>(adapter.mIds.subList(3, 6));
+        adapter.removeRange(3, 3);
+        adapter.notifyItemRangeRemoved(3, 3);
+        adapter.mIds.addAll(0, ids);
+        adapter.notifyItemRangeInserted(0, 3);
+        layout();
+        Rect rect = new Rect();
+        for (int position = 0; position < 3; position++) {
+            assertTrue(mLayout.getItemRect(position, rect));
+            assertEquals(rects.get(position).left, rect.left);
+            assertEquals(rects.get(position).top, rect.top);
+            assertEquals(rects.get(position).right, rect.right);
+            assertEquals(rects.get(position).bottom, rect.bottom);
+        }
+        assertEquals(30, mLayout.getChildCount());
+        assertViewsMatchItems(adapter);
+    }
+
+    @Test
+    public void touchGoesToItemUnderFinger() {
+        TestAdapter adapter = new TestAdapter(20, false);
+        show(adapter);
+        Rect rect = new Rect();
+        mLayout.getItemRect(4, rect);
+        ItemView view = findView(adapter, 4);
+        float x = (rect.left + rect.right) / 2f;
+        float y = (rect.top + rect.bottom) / 2f;
+
+        assertTrue(dispatch(MotionEvent.ACTION_DOWN, x, y));
+        assertTrue(dispatch(MotionEvent.ACTION_UP, x, y));
+        assertEquals(Arrays.asList(MotionEvent.ACTION_DOWN, MotionEvent.ACTION_UP), view.mTouches);
+
+        // 滑动被拦截时按下的item收到取消，之后的事件不再交给它
+        view.mTouches.clear();
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        dispatch(MotionEvent.ACTION_MOVE, x, y + 50);
+        dispatch(MotionEvent.ACTION_UP, x, y + 50);
+        assertEquals(Arrays.asList(MotionEvent.ACTION_DOWN, MotionEvent.ACTION_CANCEL), view.mTouches);
+    }
+
+    private boolean dispatch(int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, 0, action, x, y, 0);
+        boolean handled = mLayout.dispatchTouchEvent(event);
+        event.recycle();
+        return handled;
+    }
+
+    /**
+     * 设置adapter并挂到父布局上完成第一次布局
+     */
+    private void show(TestAdapter adapter) {
+        mLayout.setAdapter(adapter);
+        mParent.addView(mLayout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                FrameLayout.LayoutParams.WRAP_CONTENT));
+        adapter.notifyDataSetChanged();
+        layout();
+    }
+
+    private void layout() {
+        idle();
+        mParent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mParent.layout(0, 0, WIDTH, HEIGHT);
+        idle();
+    }
+
+    private static void idle() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    /**
+     * 每个挂载的View绑定的item还在，并且布局在这个item当前的位置上。移动过的item不重新绑定，按id查找
+     */
+    private void assertViewsMatchItems(TestAdapter adapter) {
+        Rect rect = new Rect();
+        boolean[] seen = new boolean[adapter.getCount()];
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            ItemView view = (ItemView) mLayout.getChildAt(i);
+            int position = adapter.mIds.indexOf(view.mId);
+            assertTrue("item " + view.mId + " was removed", position >= 0);
+            assertTrue("position " + position + " attached twice", !seen[position]);
+            seen[position] = true;
+            assertTrue(mLayout.getItemRect(position, rect));
+            assertEquals(rect.left, view.getLeft());
+            assertEquals(rect.top, view.getTop());
+            assertEquals(rect.right, view.getRight());
+            assertEquals(rect.bottom, view.getBottom());
+        }
+    }
+
+    /**
+     * 跨过可见区域边缘的item缩小，其他item保持原大小
+     */
+    private void assertScaledOnlyAtEdges(TestAdapter adapter, int viewStart, int viewEnd) {
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            View view = mLayout.getChildAt(i);
+            int top = view.getTop();
+            int bottom = view.getBottom();
+            boolean crossing = (top < viewStart && viewStart < bottom) || (top < viewEnd && viewEnd < bottom);
+            assertEquals("item at " + top + "-" + bottom, crossing, view.getScaleX() < 1f);
+            assertEquals(view.getScaleX(), view.getScaleY(), 0f);
+        }
+    }
+
+    private ItemView findView(TestAdapter adapter, int position) {
+        long id = adapter.mIds.get(position);
+        for (int i = 0; i < mLayout.getChildCount(); i++) {
+            ItemView view = (ItemView) mLayout.getChildAt(i);
+            if (view.mId == id) {
+                return view;
+            }
+        }
+        assertNotNull("no view for " + position, null);
+        return null;
+    }
+
+    static class ItemView extends View {
+
+        int mPosition = -1;
+        long mId = -1;
+        int mBindCount;
+        int mMeasureCount;
+        Object mPayload;
+        final List<Integer> mTouches = new ArrayList<>();
+
+        ItemView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            setMeasuredDimension(measureSize(widthMeasureSpec), measureSize(heightMeasureSpec));
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            mTouches.add(event.getActionMasked());
+            return true;
+        }
+
+        private static int measureSize(int measureSpec) {
+            return MeasureSpec.getMode(measureSpec) == MeasureSpec.EXACTLY ? MeasureSpec.getSize(measureSpec) : ITEM_SIZE;
+        }
+    }
+
+    static class TestAdapter extends RandomAdapter {
+
+        final List<Long> mIds = new ArrayList<>();
+        private final boolean mStableIds;
+        private long mNextId;
+        boolean mWrapContent;
+        int mCreated;
+        int mBinds;
+
+        TestAdapter(int count, boolean stableIds) {
+            insert(0, count);
+            mStableIds = stableIds;
+        }
+
+        void insert(int start, int count) {
+            for (int i = 0; i < count; i++) {
+                mIds.add(start + i, mNextId++);
+            }
+        }
+
+        void removeRange(int start, int count) {
+            mIds.subList(start, start + count).clear();
+        }
+
+        void move(int from, int to) {
+            mIds.add(to, mIds.remove(from));
+        }
+
+        @Override
+        public int getCount() {
+            return mIds.size();
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return mStableIds;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mIds.get(position);
+        }
+
+        @Override
+        public boolean onBindPayload(View view, int position, Object payload) {
+            if (!(payload instanceof String)) {
+                return false;
+            }
+            ((ItemView) view).mPayload = payload;
+            return true;
+        }
+
+        @Override
+        public View getView(Context context, int position, View convertView) {
+            ItemView view = (ItemView) convertView;
+            if (view == null) {
+                view = new ItemView(context);
+                int size = mWrapContent ? RandomLayout.LayoutParams.WRAP_CONTENT : ITEM_SIZE;
+                view.setLayoutParams(new RandomLayout.LayoutParams(size, size));
+                mCreated++;
+            }
+            view.mPosition = position;
+            view.mId = mIds.get(position);
+            view.mBindCount++;
+            mBinds++;
+            return view;
+        }
+    }
+}
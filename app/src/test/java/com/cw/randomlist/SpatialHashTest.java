@@ -0,0 +1,153 @@
+package com.cw.randomlist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SpatialHash的三种查询（是否重叠、重叠的id、坐标下的item）在删除、整体偏移和改变格子大小之后
+ * 仍然和逐个比较所有矩形得到的相同；格子大小只在item尺寸成倍变化时调整
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+public class SpatialHashTest {
+
+    @Test
+    public void queriesMatchBruteForce() {
+        Random random = new Random(20180514L);
+        SpatialHash hash = new SpatialHash();
+        hash.setBucketSize(50, 40);
+        // 句柄 -> {id, left, top, right, bottom}，坐标为偏移后的实际坐标
+        Map<Integer, int[]> model = new HashMap<>();
+        int nextId = 0;
+        for (int step = 0; step < 20000; step++) {
+            int op = random.nextInt(100);
+            if (op < 45) {
+                int left = random.nextInt(1000) - 200;
+                int top = random.nextInt(1000) - 200;
+                int right = left + 1 + random.nextInt(random.nextInt(10) == 0 ? 300 : 60);
+                int bottom = top + 1 + random.nextInt(60);
+                int id = nextId++;
+                int entry = hash.add(id, left, top, right, bottom);
+                model.put(entry, new int[]{id, left, top, right, bottom});
+            } else if (op < 70 && !model.isEmpty()) {
+                int entry = randomKey(model, random);
+                hash.remove(entry);
+                model.remove(entry);
+            } else if (op < 73) {
+                int dx = random.nextInt(101) - 50;
+                int dy = random.nextInt(101) - 50;
+                hash.offset(dx, dy);
+                for (int[] rect : model.values()) {
+                    rect[1] += dx;
+                    rect[2] += dy;
+                    rect[3] += dx;
+                    rect[4] += dy;
+                }
+            } else if (op < 74) {
+                hash.setBucketSize(10 + random.nextInt(100), 10 + random.nextInt(100));
+            } else if (op < 76 && !model.isEmpty()) {
+                int entry = randomKey(model, random);
+                int id = nextId++;
+                hash.setId(entry, id);
+                model.get(entry)[0] = id;
+            } else {
+                int left = random.nextInt(1200) - 300;
+                int top = random.nextInt(1200) - 300;
+                int right = left + random.nextInt(150);
+                int bottom = top + random.nextInt(150);
+                assertEquals(bruteIntersects(model, left, top, right, bottom), hash.intersects(left, top, right, bottom));
+                int[] expected = bruteQuery(model, left, top, right, bottom);
+                int[] out = new int[model.size()];
+                int found = hash.query(left, top, right, bottom, out);
+                int[] actual = Arrays.copyOf(out, found);
+                Arrays.sort(actual);
+                assertArrayEquals(expected, actual);
+                assertEquals(bruteFindAt(model, left, top), hash.findAt(left, top));
+            }
+        }
+    }
+
+    @Test
+    public void queryReportsCountBeyondOutput() {
+        SpatialHash hash = new SpatialHash();
+        hash.setBucketSize(10, 10);
+        for (int i = 0; i < 5; i++) {
+            hash.add(i, i * 10, 0, i * 10 + 10, 10);
+        }
+        int[] out = new int[2];
+        assertEquals(5, hash.query(0, 0, 50, 10, out));
+    }
+
+    @Test
+    public void fitBucketSizeIgnoresSmallChanges() {
+        SpatialHash hash = new SpatialHash();
+        hash.add(1, 0, 0, 100, 80);
+        hash.fitBucketSize(100, 80);
+        assertEquals(100, hash.getBucketWidth());
+        assertEquals(80, hash.getBucketHeight());
+        // 两倍以内不重新分配
+        hash.fitBucketSize(190, 45);
+        assertEquals(100, hash.getBucketWidth());
+        assertEquals(80, hash.getBucketHeight());
+        hash.fitBucketSize(210, 80);
+        assertEquals(210, hash.getBucketWidth());
+        assertEquals(80, hash.getBucketHeight());
+        assertEquals(1, hash.findAt(99, 79));
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        SpatialHash hash = new SpatialHash();
+        hash.add(1, 0, 0, 10, 10);
+        hash.offset(5, 5);
+        hash.clear();
+        assertEquals(-1, hash.findAt(6, 6));
+        int entry = hash.add(2, 0, 0, 10, 10);
+        assertEquals(2, hash.getId(entry));
+        assertEquals(2, hash.findAt(0, 0));
+    }
+
+    private static int randomKey(Map<Integer, int[]> model, Random random) {
+        List<Integer> keys = new ArrayList<>(model.keySet());
+        return keys.get(random.nextInt(keys.size()));
+    }
+
+    private static boolean bruteIntersects(Map<Integer, int[]> model, int left, int top, int right, int bottom) {
+        return bruteQuery(model, left, top, right, bottom).length > 0;
+    }
+
+    private static int[] bruteQuery(Map<Integer, int[]> model, int left, int top, int right, int bottom) {
+        List<Integer> ids = new ArrayList<>();
+        for (int[] rect : model.values()) {
+            if (rect[1] < right && left < rect[3] && rect[2] < bottom && top < rect[4]) {
+                ids.add(rect[0]);
+            }
+        }
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int bruteFindAt(Map<Integer, int[]> model, int x, int y) {
+        int found = -1;
+        for (int[] rect : model.values()) {
+            if (rect[1] <= x && x < rect[3] && rect[2] <= y && y < rect[4]) {
+                found = Math.max(found, rect[0]);
+            }
+        }
+        return found;
+    }
+}
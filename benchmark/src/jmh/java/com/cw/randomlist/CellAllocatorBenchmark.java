@@ -0,0 +1,65 @@
+package com.cw.randomlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 区域分配的benchmark：按页扩展区域并分配itemCount个区域，再释放一半后重新分配，
+ * 不包含位置计算，用于单独比较区域分配和扩展的开销
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CellAllocatorBenchmark {
+
+    private static final int ROWS = 4;
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"true", "false"})
+    public boolean layoutOnEnd;
+
+    @Benchmark
+    public int allocate() {
+        CellAllocator allocator = new CellAllocator(ROWS);
+        int checksum = 0;
+        for (int start = 0; start < itemCount; start += PAGE_SIZE) {
+            int count = Math.min(PAGE_SIZE, itemCount - start);
+            allocator.extend((count + ROWS - 1) / ROWS, layoutOnEnd);
+            for (int i = 0; i < count; i++) {
+                checksum += layoutOnEnd ? allocator.allocateAtEnd() : allocator.allocateAtStart();
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int releaseAndReuse() {
+        CellAllocator allocator = new CellAllocator(ROWS);
+        allocator.extend((itemCount + ROWS - 1) / ROWS, true);
+        int[] cells = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            cells[i] = allocator.allocateAtEnd();
+        }
+        for (int i = 0; i < itemCount; i += 2) {
+            allocator.release(cells[i]);
+        }
+        int checksum = 0;
+        for (int i = 0; i < itemCount; i += 2) {
+            checksum += allocator.allocateAtEnd();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,134 @@
+package com.cw.randomlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 位置计算的benchmark：按页(和notifyItemRangeInserted一样)为itemCount个item确定位置，
+ * 和RandomLayout一样每页先扩展区域，再按扩展后的内容长度计算位置，向前添加时先偏移已有的位置。
+ * 尺寸和随机数都使用固定的种子，不同版本之间的结果可以直接比较
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PlacementBenchmark {
+
+    private static final long SEED = 20180514L;
+    private static final int PAGE_SIZE = 1000;
+    /**
+     * 交叉轴方向上内容区域的长度
+     */
+    private static final int CROSS_EXTENT = 1080;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"VERTICAL", "HORIZONTAL"})
+    public String orientation;
+
+    @Param({"true", "false"})
+    public boolean layoutOnEnd;
+
+    /**
+     * uniform：所有item都是200px；mixed：和示例一样三分之一是300px，其余200px
+     */
+    @Param({"uniform", "mixed"})
+    public String sizes;
+
+    /**
+     * grid：每个item占一个区域；span：按尺寸占用多个细分格子
+     */
+    @Param({"grid", "span"})
+    public String engine;
+
+    private int mOrientation;
+    private int[][] mPageSizes;
+    private int mMaxItemExtent;
+    private int[] mRects;
+    private int[] mCells;
+    private int[] mRemainingSizes;
+    private PlacementEngine mEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mOrientation = "VERTICAL".equals(orientation) ? PlacementEngine.VERTICAL : PlacementEngine.HORIZONTAL;
+        mEngine = "span".equals(engine) ? new SpanPlacementEngine() : new GridPlacementEngine();
+        Random random = new Random(SEED);
+        boolean mixed = "mixed".equals(sizes);
+        int pageCount = (itemCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        mPageSizes = new int[pageCount][];
+        mMaxItemExtent = 0;
+        for (int page = 0; page < pageCount; page++) {
+            int count = Math.min(PAGE_SIZE, itemCount - page * PAGE_SIZE);
+            int[] pageSizes = new int[count * 2];
+            for (int i = 0; i < count; i++) {
+                int size = mixed && random.nextInt(100) % 3 == 0 ? 300 : 200;
+                pageSizes[i * 2] = size;
+                pageSizes[i * 2 + 1] = size;
+                mMaxItemExtent = Math.max(mMaxItemExtent, size);
+            }
+            mPageSizes[page] = pageSizes;
+        }
+        mRects = new int[PAGE_SIZE * 4];
+        mCells = new int[PAGE_SIZE];
+        mRemainingSizes = new int[PAGE_SIZE * 2];
+    }
+
+    @Benchmark
+    public int placeAll() {
+        mEngine.reset(SEED);
+        int checksum = 0;
+        int lastExtent = 0;
+        for (int page = 0; page < mPageSizes.length; page++) {
+            int count = mPageSizes[page].length / 2;
+            int[] sizes = mPageSizes[page];
+            int total = page * PAGE_SIZE + count;
+            int columns = mEngine.ensureCapacity(total, layoutOnEnd);
+            // 和RandomLayout.placeItems一样，区域不足时扩展后继续计算剩下的item
+            while (count > 0) {
+                // 和RandomLayout.contentExtent一致
+                int mainExtent = (int) (columns * mMaxItemExtent * 1.2);
+                if (!layoutOnEnd && lastExtent > 0) {
+                    int offset = mainExtent - lastExtent;
+                    if (mOrientation == PlacementEngine.VERTICAL) {
+                        mEngine.offset(0, offset);
+                    } else {
+                        mEngine.offset(offset, 0);
+                    }
+                }
+                lastExtent = mainExtent;
+                int width = mOrientation == PlacementEngine.VERTICAL ? CROSS_EXTENT : mainExtent;
+                int height = mOrientation == PlacementEngine.VERTICAL ? mainExtent : CROSS_EXTENT;
+                int placed = mEngine.place(sizes, count, mOrientation, width, height, layoutOnEnd, mRects, mCells);
+                if (placed > 0) {
+                    checksum += placed + mRects[0] + mCells[placed - 1];
+                }
+                count -= placed;
+                if (count == 0) {
+                    break;
+                }
+                int grown = mEngine.ensureCapacity(total, layoutOnEnd);
+                if (grown == columns) {
+                    throw new IllegalStateException("engine did not grow");
+                }
+                columns = grown;
+                System.arraycopy(sizes, placed * 2, mRemainingSizes, 0, count * 2);
+                sizes = mRemainingSizes;
+            }
+        }
+        return checksum;
+    }
+}
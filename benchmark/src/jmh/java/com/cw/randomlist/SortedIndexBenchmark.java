@@ -0,0 +1,100 @@
+package com.cw.randomlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按页确定位置并维护按主轴起点排序的position数组的benchmark，和RandomLayout.onLayout一致：
+ * 位置转换为布局坐标(向前添加时减去头部增长的长度)后加入排序数组。
+ * merge为RandomLayout使用的每页合并一次，insert为逐个插入，向前添加时逐个插入是O(页大小·item总数)
+ *
+ * @author cw
+ * @date 2026/10/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SortedIndexBenchmark {
+
+    private static final long SEED = 20180514L;
+    private static final int PAGE_SIZE = 1000;
+    private static final int CROSS_EXTENT = 1080;
+    private static final int ITEM_SIZE = 200;
+
+    @Param({"10000", "100000"})
+    public int itemCount;
+
+    @Param({"true", "false"})
+    public boolean layoutOnEnd;
+
+    @Param({"merge", "insert"})
+    public String mode;
+
+    private final GridPlacementEngine mEngine = new GridPlacementEngine();
+    private int[] mPageSizes;
+    private int[] mPageRects;
+    private int[] mPageCells;
+    private int[] mPagePositions;
+    private int[] mItemRects;
+    private int[] mSorted;
+    private long[] mKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mPageSizes = new int[PAGE_SIZE * 2];
+        for (int i = 0; i < PAGE_SIZE * 2; i++) {
+            mPageSizes[i] = ITEM_SIZE;
+        }
+        mPageRects = new int[PAGE_SIZE * 4];
+        mPageCells = new int[PAGE_SIZE];
+        mPagePositions = new int[PAGE_SIZE];
+        mItemRects = new int[itemCount * 4];
+        mSorted = new int[itemCount];
+    }
+
+    @Benchmark
+    public int placeAndIndex() {
+        mEngine.reset(SEED);
+        boolean merge = "merge".equals(mode);
+        int placedCount = 0;
+        int originOffset = 0;
+        int lastExtent = 0;
+        for (int start = 0; start < itemCount; start += PAGE_SIZE) {
+            int count = Math.min(PAGE_SIZE, itemCount - start);
+            int columns = mEngine.ensureCapacity(start + count, layoutOnEnd);
+            int mainExtent = (int) (columns * ITEM_SIZE * 1.2);
+            if (!layoutOnEnd && start > 0) {
+                originOffset += mainExtent - lastExtent;
+                mEngine.offset(0, mainExtent - lastExtent);
+            }
+            lastExtent = mainExtent;
+            int placed = mEngine.place(mPageSizes, count, PlacementEngine.VERTICAL, CROSS_EXTENT, mainExtent,
+                    layoutOnEnd, mPageRects, mPageCells);
+            for (int i = 0; i < placed; i++) {
+                int position = placedCount + i;
+                System.arraycopy(mPageRects, i * 4, mItemRects, position * 4, 4);
+                mItemRects[position * 4 + 1] -= originOffset;
+                mItemRects[position * 4 + 3] -= originOffset;
+                mPagePositions[i] = position;
+            }
+            if (merge) {
+                mKeys = SortedPositions.merge(mSorted, placedCount, mPagePositions, placed, mItemRects, 1, mKeys);
+                placedCount += placed;
+            } else {
+                for (int i = 0; i < placed; i++) {
+                    placedCount = SortedPositions.insert(mSorted, placedCount, mPagePositions[i], mItemRects, 1);
+                }
+            }
+        }
+        return placedCount + mSorted[0] + mSorted[placedCount - 1];
+    }
+}